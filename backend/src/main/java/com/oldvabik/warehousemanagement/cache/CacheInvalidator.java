@@ -0,0 +1,103 @@
+package com.oldvabik.warehousemanagement.cache;
+
+import com.oldvabik.warehousemanagement.config.CacheProperties;
+import java.util.Optional;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Drops cached values built from an entity that has just been written. Inside a transaction the
+ * invalidation is repeated after commit, since a concurrent read may have reloaded the old state
+ * in between.
+ *
+ * <p>When an {@link InvalidationTransport} is configured every write is also announced to the
+ * other nodes once committed; they drop the entity's own entry and everything embedding it.
+ */
+@Slf4j
+@Component
+public class CacheInvalidator {
+
+    private final CacheRegistry caches;
+    private final CollectionCache collectionCache;
+    private final InvalidationTransport transport;
+    private final String nodeId;
+
+    public CacheInvalidator(CacheRegistry caches,
+                            CollectionCache collectionCache,
+                            Optional<InvalidationTransport> transport,
+                            CacheProperties properties) {
+        this.caches = caches;
+        this.collectionCache = collectionCache;
+        this.transport = transport.orElse(null);
+        this.nodeId = properties.getInvalidation().getNodeId();
+        if (this.transport != null) {
+            this.transport.subscribe(this::receive, this::clearAll);
+        }
+    }
+
+    // Removes the entity's own entry and every entry embedding it.
+    public void invalidate(EntityRef ref) {
+        apply(cache -> cache.invalidate(ref), ref);
+    }
+
+    // Removes the entries embedding the entity; its own entry is left to the service that wrote it.
+    public void invalidateDependents(EntityRef ref) {
+        apply(cache -> cache.invalidateDependents(ref), ref);
+    }
+
+    // Announces a write whose local cache entry the caller has already taken care of.
+    // Every write changes its table, so cached collections over it are outdated as well.
+    public void broadcast(EntityRef ref) {
+        collectionCache.invalidate(ref.type());
+        boolean inTransaction = TransactionSynchronizationManager.isSynchronizationActive();
+        if (inTransaction) {
+            afterCommit(() -> collectionCache.invalidate(ref.type()));
+        }
+        if (transport == null) {
+            return;
+        }
+        InvalidationMessage message = new InvalidationMessage(nodeId, ref);
+        if (inTransaction) {
+            afterCommit(() -> transport.publish(message));
+        } else {
+            transport.publish(message);
+        }
+    }
+
+    private void apply(Consumer<EntityCache<?>> invalidation, EntityRef ref) {
+        caches.all().forEach(invalidation);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            afterCommit(() -> caches.all().forEach(invalidation));
+        }
+        broadcast(ref);
+    }
+
+    private void receive(InvalidationMessage message) {
+        if (nodeId.equals(message.origin())) {
+            return;
+        }
+        for (EntityCache<?> cache : caches.all()) {
+            cache.invalidate(message.ref());
+        }
+        collectionCache.invalidate(message.ref().type());
+    }
+
+    private void clearAll() {
+        log.info("Clearing all caches after missed invalidations");
+        caches.all().forEach(EntityCache::clear);
+        collectionCache.clear();
+    }
+
+    private static void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+}
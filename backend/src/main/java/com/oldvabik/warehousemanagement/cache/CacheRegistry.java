@@ -0,0 +1,35 @@
+package com.oldvabik.warehousemanagement.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.stereotype.Component;
+
+/**
+ * The entity caches by name. A {@link TwoLevelCache} shares its name with the {@link LfuCache}
+ * it fronts and takes its place here, since every operation on it reaches the local level too.
+ */
+@Component
+public class CacheRegistry {
+
+    private final Map<String, EntityCache<?>> caches = new LinkedHashMap<>();
+
+    public CacheRegistry(List<EntityCache<?>> caches) {
+        for (EntityCache<?> cache : caches) {
+            this.caches.merge(cache.getName(), cache,
+                    (registered, other) -> other instanceof TwoLevelCache ? other : registered);
+        }
+    }
+
+    public Collection<EntityCache<?>> all() {
+        return Collections.unmodifiableCollection(caches.values());
+    }
+
+    // Returns null if there is no cache with that name.
+    public EntityCache<?> find(String name) {
+        return caches.get(name);
+    }
+
+}
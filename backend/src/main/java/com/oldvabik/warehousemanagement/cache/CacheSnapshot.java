@@ -0,0 +1,73 @@
+package com.oldvabik.warehousemanagement.cache;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The cached ids of every cache with their access frequencies, as saved to disk for a warm restart.
+ * The file holds one {@code <cache> <id> <frequency>} line per key; it is written to a temporary
+ * file first and moved into place, so a crash mid-write never leaves a truncated snapshot behind.
+ */
+public record CacheSnapshot(Map<String, List<HotKey>> keys) {
+
+    public CacheSnapshot {
+        keys = Map.copyOf(keys);
+    }
+
+    public List<HotKey> keysOf(String cacheName) {
+        return keys.getOrDefault(cacheName, List.of());
+    }
+
+    public void write(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, List<HotKey>> cache : keys.entrySet()) {
+                    for (HotKey key : cache.getValue()) {
+                        writer.write(cache.getKey() + " " + key.id() + " " + key.frequency());
+                        writer.newLine();
+                    }
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Throws IllegalArgumentException if a line is malformed.
+    public static CacheSnapshot read(Path path) throws IOException {
+        Map<String, List<HotKey>> keys = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] parts = line.trim().split(" ");
+                if (parts.length != 3) {
+                    throw new IllegalArgumentException("Malformed cache snapshot line: " + line);
+                }
+                try {
+                    HotKey key = new HotKey(Long.parseLong(parts[1]), Integer.parseInt(parts[2]));
+                    keys.computeIfAbsent(parts[0], name -> new ArrayList<>()).add(key);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Malformed cache snapshot line: " + line, e);
+                }
+            }
+        }
+        return new CacheSnapshot(keys);
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.oldvabik.warehousemanagement.cache;
+
+import java.time.Duration;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class CacheSpec {
+
+    private int capacity;
+
+    // Approximate upper bound in bytes for the cached values; 0 disables the bound.
+    private long maxWeight;
+
+    // Entries older than this are treated as absent on the next read; null keeps them forever.
+    private Duration expireAfterWrite;
+
+    // Entries older than this are reloaded in the background on their next read; null disables it.
+    private Duration refreshAfterWrite;
+
+    // How many not-found ids to remember, and for how long; a capacity of 0 disables it.
+    private int negativeCapacity;
+    private Duration negativeTtl = Duration.ofSeconds(30);
+
+    public CacheSpec(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public CacheSpec(int capacity, long maxWeight) {
+        this.capacity = capacity;
+        this.maxWeight = maxWeight;
+    }
+
+}
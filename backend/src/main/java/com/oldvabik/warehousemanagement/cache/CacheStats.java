@@ -0,0 +1,34 @@
+package com.oldvabik.warehousemanagement.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class CacheStats {
+
+    private String name;
+    private long hitCount;
+    private long missCount;
+    private long negativeHitCount;
+    private long putCount;
+    private long rejectionCount;
+    private long evictionCount;
+    private long expirationCount;
+    private long loadSuccessCount;
+    private long loadFailureCount;
+    private long totalLoadTimeNanos;
+    private int size;
+    private long weight;
+
+    public double getHitRate() {
+        long requests = hitCount + missCount;
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    public double getAverageLoadTimeMillis() {
+        long loads = loadSuccessCount + loadFailureCount;
+        return loads == 0 ? 0.0 : totalLoadTimeNanos / 1_000_000.0 / loads;
+    }
+
+}
@@ -1,11 +1,22 @@
 package com.oldvabik.warehousemanagement.cache;
 
-import com.oldvabik.warehousemanagement.model.Category;
+import com.oldvabik.warehousemanagement.config.CacheProperties;
+import com.oldvabik.warehousemanagement.model.CategorySnapshot;
 import org.springframework.stereotype.Component;
 
 @Component
-public class CategoryCache extends LfuCache<Category> {
-    public CategoryCache() {
-        super(3);
+public class CategoryCache extends LfuCache<CategorySnapshot> {
+    public CategoryCache(CacheProperties properties) {
+        super("categories", properties.getCategories());
+    }
+
+    @Override
+    protected long weigh(CategorySnapshot category) {
+        return 32 + weighString(category.name());
+    }
+
+    @Override
+    protected EntityType entityType() {
+        return EntityType.CATEGORY;
     }
 }
@@ -0,0 +1,95 @@
+package com.oldvabik.warehousemanagement.cache;
+
+import com.oldvabik.warehousemanagement.config.CacheProperties;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+
+/**
+ * Caches whole query results, such as every product or the products of one category, stamped
+ * with the versions of the tables they were read from. Any write to one of those tables bumps its
+ * version through the {@link CacheInvalidator}, and a result with an outdated stamp is reloaded
+ * on its next read. Versions only grow, so the sum over a query's tables is a valid stamp.
+ *
+ * <p>Past the capacity the least recently read result is dropped to make room for a new one. Reads
+ * only stamp the result with a logical clock, so hits stay lock-free; finding the victim scans the
+ * results, which only happens on a miss that goes to the database anyway.
+ */
+@Component
+public class CollectionCache {
+
+    private final AtomicLongArray versions = new AtomicLongArray(EntityType.values().length);
+    private final Map<String, Result> results = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+    private final int capacity;
+
+    public CollectionCache(CacheProperties properties) {
+        this.capacity = properties.getCollectionCapacity();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> List<T> getOrLoad(String key, Set<EntityType> tables, Supplier<List<T>> loader) {
+        // Read before loading: a write racing with the load leaves the result stamped as outdated.
+        long stamp = stamp(tables);
+        Result cached = results.get(key);
+        if (cached != null && cached.stamp == stamp) {
+            cached.lastRead = clock.incrementAndGet();
+            return (List<T>) cached.value;
+        }
+        List<T> loaded = List.copyOf(loader.get());
+        if (capacity <= 0) {
+            return loaded;
+        }
+        if (cached == null && results.size() >= capacity) {
+            evictLeastRecentlyRead();
+        }
+        results.put(key, new Result(stamp, loaded, clock.incrementAndGet()));
+        return loaded;
+    }
+
+    public void invalidate(EntityType table) {
+        versions.incrementAndGet(table.ordinal());
+    }
+
+    public void clear() {
+        results.clear();
+    }
+
+    private long stamp(Set<EntityType> tables) {
+        long stamp = 0;
+        for (EntityType table : tables) {
+            stamp += versions.get(table.ordinal());
+        }
+        return stamp;
+    }
+
+    private void evictLeastRecentlyRead() {
+        Map.Entry<String, Result> victim = null;
+        for (Map.Entry<String, Result> entry : results.entrySet()) {
+            if (victim == null || entry.getValue().lastRead < victim.getValue().lastRead) {
+                victim = entry;
+            }
+        }
+        if (victim != null) {
+            results.remove(victim.getKey(), victim.getValue());
+        }
+    }
+
+    private static final class Result {
+        final long stamp;
+        final List<?> value;
+        volatile long lastRead;
+
+        Result(long stamp, List<?> value, long lastRead) {
+            this.stamp = stamp;
+            this.value = value;
+            this.lastRead = lastRead;
+        }
+    }
+
+}
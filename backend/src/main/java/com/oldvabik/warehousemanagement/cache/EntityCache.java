@@ -0,0 +1,55 @@
+package com.oldvabik.warehousemanagement.cache;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
+/**
+ * A cache of entity snapshots keyed by id, as used by the services and the cache administration.
+ * {@link LfuCache} keeps the entries in this process; {@link TwoLevelCache} fronts a shared
+ * {@link RemoteStore} with one.
+ */
+public interface EntityCache<T> {
+
+    String getName();
+
+    T get(long id);
+
+    T getOrLoad(long id, LongFunction<T> loader);
+
+    int loadAll(long[] ids, Function<long[], Map<Long, T>> loader);
+
+    void put(long id, T value);
+
+    void remove(long id);
+
+    void clearNegative(long id);
+
+    // Drops every entry held in this process.
+    void clear();
+
+    void invalidate(EntityRef ref);
+
+    void invalidateDependents(EntityRef ref);
+
+    List<HotKey> hotKeys();
+
+    // Raises the access frequency of a cached id, as when warming up from a snapshot of hotKeys().
+    void restoreFrequency(long id, int frequency);
+
+    void resize(int capacity, long maxWeight);
+
+    int getCapacity();
+
+    long getMaxWeight();
+
+    int size();
+
+    long weight();
+
+    CacheStats stats();
+
+    void resetStats();
+
+}
@@ -0,0 +1,26 @@
+package com.oldvabik.warehousemanagement.cache;
+
+/**
+ * Identifies a persisted entity that cached values may embed, such as the category inside a
+ * product snapshot. Caches index their entries by these references so a write can invalidate
+ * exactly the entries built from the old state.
+ */
+public record EntityRef(EntityType type, long id) {
+
+    public static EntityRef category(long id) {
+        return new EntityRef(EntityType.CATEGORY, id);
+    }
+
+    public static EntityRef product(long id) {
+        return new EntityRef(EntityType.PRODUCT, id);
+    }
+
+    public static EntityRef user(long id) {
+        return new EntityRef(EntityType.USER, id);
+    }
+
+    public static EntityRef order(long id) {
+        return new EntityRef(EntityType.ORDER, id);
+    }
+
+}
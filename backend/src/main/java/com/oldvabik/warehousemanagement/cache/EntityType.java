@@ -0,0 +1,8 @@
+package com.oldvabik.warehousemanagement.cache;
+
+public enum EntityType {
+    CATEGORY,
+    PRODUCT,
+    USER,
+    ORDER
+}
@@ -0,0 +1,41 @@
+package com.oldvabik.warehousemanagement.cache;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+class Entry<T> {
+
+    private static final AtomicIntegerFieldUpdater<Entry> PENDING_HITS =
+            AtomicIntegerFieldUpdater.newUpdater(Entry.class, "pendingHits");
+
+    final long key;
+    volatile T value;
+    volatile long writeTime;
+    private volatile int pendingHits;
+    long weight;
+
+    FrequencyList.Bucket<T> bucket;
+    Entry<T> prev;
+    Entry<T> next;
+
+    Entry(long key, T value) {
+        this.key = key;
+        this.value = value;
+    }
+
+    int frequency() {
+        return bucket == null ? 0 : bucket.frequency;
+    }
+
+    void recordHit() {
+        PENDING_HITS.incrementAndGet(this);
+    }
+
+    boolean hasPendingHits() {
+        return pendingHits > 0;
+    }
+
+    int takePendingHits() {
+        return PENDING_HITS.getAndSet(this, 0);
+    }
+
+}
@@ -0,0 +1,147 @@
+package com.oldvabik.warehousemanagement.cache;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.function.Consumer;
+
+/**
+ * Open-addressing hash table from primitive {@code long} keys to the entries of a {@link Segment},
+ * so lookups neither box the key nor walk node chains.
+ *
+ * <p>Writes happen under the segment lock; reads are lock-free. A slot's key is written once per
+ * table, before the first entry is published to the slot with release semantics, and never changes
+ * afterwards: removed keys leave a tombstone that only the same key may reuse. Tombstones of other
+ * keys are dropped when the table is rebuilt, and the new table is published through a volatile
+ * field, so a reader always sees a consistent key for the entry it acquired.
+ */
+class EntryTable<T> {
+
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(Object[].class);
+    private static final Object TOMBSTONE = new Object();
+    private static final int MIN_CAPACITY = 16;
+
+    private volatile Table table = new Table(MIN_CAPACITY);
+    private int live;
+    private int used;
+
+    @SuppressWarnings("unchecked")
+    Entry<T> get(long key) {
+        Table current = table;
+        for (int i = current.indexOf(key); ; i = (i + 1) & current.mask) {
+            Object slot = SLOTS.getAcquire(current.slots, i);
+            if (slot == null) {
+                return null;
+            }
+            if (current.keys[i] == key) {
+                return slot == TOMBSTONE ? null : (Entry<T>) slot;
+            }
+        }
+    }
+
+    // Caller holds the segment lock.
+    void put(Entry<T> entry) {
+        Table current = table;
+        int i = current.indexOf(entry.key);
+        while (true) {
+            Object slot = current.slots[i];
+            if (slot == null) {
+                if ((used + 1) * 4L > current.slots.length * 3L) {
+                    current = rebuild(live + 1);
+                    i = current.indexOf(entry.key);
+                    continue;
+                }
+                current.keys[i] = entry.key;
+                SLOTS.setRelease(current.slots, i, entry);
+                used++;
+                live++;
+                return;
+            }
+            if (current.keys[i] == entry.key) {
+                if (slot == TOMBSTONE) {
+                    live++;
+                }
+                SLOTS.setRelease(current.slots, i, entry);
+                return;
+            }
+            i = (i + 1) & current.mask;
+        }
+    }
+
+    // Caller holds the segment lock.
+    void remove(long key) {
+        Table current = table;
+        for (int i = current.indexOf(key); ; i = (i + 1) & current.mask) {
+            Object slot = current.slots[i];
+            if (slot == null) {
+                return;
+            }
+            if (current.keys[i] == key) {
+                if (slot != TOMBSTONE) {
+                    SLOTS.setRelease(current.slots, i, TOMBSTONE);
+                    live--;
+                }
+                return;
+            }
+        }
+    }
+
+    // Caller holds the segment lock.
+    @SuppressWarnings("unchecked")
+    void forEach(Consumer<Entry<T>> action) {
+        for (Object slot : table.slots) {
+            if (slot != null && slot != TOMBSTONE) {
+                action.accept((Entry<T>) slot);
+            }
+        }
+    }
+
+    // Caller holds the segment lock.
+    void clear() {
+        table = new Table(MIN_CAPACITY);
+        live = 0;
+        used = 0;
+    }
+
+    // Copies the live entries into a table at most half full and publishes it.
+    @SuppressWarnings("unchecked")
+    private Table rebuild(int expected) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expected * 2) {
+            capacity <<= 1;
+        }
+        Table rebuilt = new Table(capacity);
+        for (Object slot : table.slots) {
+            if (slot != null && slot != TOMBSTONE) {
+                Entry<T> entry = (Entry<T>) slot;
+                int i = rebuilt.indexOf(entry.key);
+                while (rebuilt.slots[i] != null) {
+                    i = (i + 1) & rebuilt.mask;
+                }
+                rebuilt.keys[i] = entry.key;
+                rebuilt.slots[i] = entry;
+            }
+        }
+        used = live;
+        table = rebuilt;
+        return rebuilt;
+    }
+
+    private static final class Table {
+        final long[] keys;
+        final Object[] slots;
+        final int mask;
+
+        Table(int capacity) {
+            this.keys = new long[capacity];
+            this.slots = new Object[capacity];
+            this.mask = capacity - 1;
+        }
+
+        // Segments are chosen by the high bits of a multiplicative hash, so probe with a different mix.
+        int indexOf(long key) {
+            long hash = key * 0xBF58476D1CE4E5B9L;
+            return (int) (hash ^ (hash >>> 31)) & mask;
+        }
+    }
+
+}
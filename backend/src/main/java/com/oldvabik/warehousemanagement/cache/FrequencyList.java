@@ -0,0 +1,163 @@
+package com.oldvabik.warehousemanagement.cache;
+
+/**
+ * Constant-time LFU bookkeeping: a list of frequency buckets in ascending order,
+ * each holding its entries from least to most recently touched.
+ */
+class FrequencyList<T> {
+
+    static class Bucket<T> {
+        int frequency;
+        Bucket<T> prev;
+        Bucket<T> next;
+        Entry<T> first;
+        Entry<T> last;
+
+        Bucket(int frequency) {
+            this.frequency = frequency;
+        }
+
+        boolean isEmpty() {
+            return first == null;
+        }
+    }
+
+    private Bucket<T> head;
+
+    void add(Entry<T> entry) {
+        Bucket<T> target = head;
+        if (target == null || target.frequency != 1) {
+            target = new Bucket<>(1);
+            linkBucketAfter(null, target);
+        }
+        append(target, entry);
+    }
+
+    void increment(Entry<T> entry) {
+        Bucket<T> current = entry.bucket;
+        int frequency = current.frequency == Integer.MAX_VALUE ? current.frequency : current.frequency + 1;
+        if (frequency == current.frequency) {
+            detach(entry);
+            append(current, entry);
+            return;
+        }
+        Bucket<T> target = current.next;
+        if (target == null || target.frequency != frequency) {
+            target = new Bucket<>(frequency);
+            linkBucketAfter(current, target);
+        }
+        detach(entry);
+        append(target, entry);
+        if (current.isEmpty()) {
+            unlinkBucket(current);
+        }
+    }
+
+    Entry<T> victim() {
+        return head == null ? null : head.first;
+    }
+
+    void unlink(Entry<T> entry) {
+        Bucket<T> bucket = entry.bucket;
+        if (bucket == null) {
+            return;
+        }
+        detach(entry);
+        entry.bucket = null;
+        if (bucket.isEmpty()) {
+            unlinkBucket(bucket);
+        }
+    }
+
+    void halve() {
+        Bucket<T> bucket = head;
+        while (bucket != null) {
+            Bucket<T> next = bucket.next;
+            bucket.frequency = Math.max(1, bucket.frequency >>> 1);
+            Bucket<T> prev = bucket.prev;
+            if (prev != null && prev.frequency == bucket.frequency) {
+                mergeInto(prev, bucket);
+                unlinkBucket(bucket);
+            }
+            bucket = next;
+        }
+    }
+
+    void clear() {
+        head = null;
+    }
+
+    private void mergeInto(Bucket<T> target, Bucket<T> source) {
+        for (Entry<T> entry = source.first; entry != null; entry = entry.next) {
+            entry.bucket = target;
+        }
+        if (target.last == null) {
+            target.first = source.first;
+        } else {
+            target.last.next = source.first;
+            source.first.prev = target.last;
+        }
+        target.last = source.last;
+        source.first = null;
+        source.last = null;
+    }
+
+    private void append(Bucket<T> bucket, Entry<T> entry) {
+        entry.bucket = bucket;
+        entry.prev = bucket.last;
+        entry.next = null;
+        if (bucket.last == null) {
+            bucket.first = entry;
+        } else {
+            bucket.last.next = entry;
+        }
+        bucket.last = entry;
+    }
+
+    private void detach(Entry<T> entry) {
+        Bucket<T> bucket = entry.bucket;
+        if (entry.prev == null) {
+            bucket.first = entry.next;
+        } else {
+            entry.prev.next = entry.next;
+        }
+        if (entry.next == null) {
+            bucket.last = entry.prev;
+        } else {
+            entry.next.prev = entry.prev;
+        }
+        entry.prev = null;
+        entry.next = null;
+    }
+
+    private void linkBucketAfter(Bucket<T> anchor, Bucket<T> bucket) {
+        if (anchor == null) {
+            bucket.next = head;
+            if (head != null) {
+                head.prev = bucket;
+            }
+            head = bucket;
+            return;
+        }
+        bucket.prev = anchor;
+        bucket.next = anchor.next;
+        if (anchor.next != null) {
+            anchor.next.prev = bucket;
+        }
+        anchor.next = bucket;
+    }
+
+    private void unlinkBucket(Bucket<T> bucket) {
+        if (bucket.prev == null) {
+            head = bucket.next;
+        } else {
+            bucket.prev.next = bucket.next;
+        }
+        if (bucket.next != null) {
+            bucket.next.prev = bucket.prev;
+        }
+        bucket.prev = null;
+        bucket.next = null;
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.oldvabik.warehousemanagement.cache;
+
+/**
+ * Count-min sketch of recent key popularity with four rows of 4-bit counters packed into longs.
+ * Every {@code sampleSize} recorded accesses all counters are halved, so estimates follow the
+ * current workload instead of accumulating forever. Not thread-safe; guarded by the segment lock.
+ */
+class FrequencySketch {
+
+    private static final long[] SEEDS = {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAX_COUNT = 15;
+
+    private final long[] table;
+    private final int counterMask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.table = new long[Math.max(2, size)];
+        this.counterMask = table.length * 16 - 1;
+        this.sampleSize = Math.max(10, capacity * 10);
+    }
+
+    int frequency(long key) {
+        long hash = spread(key);
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < SEEDS.length; row++) {
+            int counter = counterIndex(hash, row);
+            int count = (int) ((table[counter >>> 4] >>> ((counter & 15) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * Records one access and returns {@code true} when it completed a sample period and the
+     * counters were halved, so the owner can age its own bookkeeping in step.
+     */
+    boolean increment(long key) {
+        long hash = spread(key);
+        for (int row = 0; row < SEEDS.length; row++) {
+            int counter = counterIndex(hash, row);
+            int shift = (counter & 15) << 2;
+            int slot = counter >>> 4;
+            if (((table[slot] >>> shift) & 0xfL) < MAX_COUNT) {
+                table[slot] += 1L << shift;
+            }
+        }
+        if (++additions >= sampleSize) {
+            reset();
+            return true;
+        }
+        return false;
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions >>>= 1;
+    }
+
+    private int counterIndex(long hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        h += h >>> 32;
+        return (int) h & counterMask;
+    }
+
+    private static long spread(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 31);
+    }
+
+}
@@ -0,0 +1,5 @@
+package com.oldvabik.warehousemanagement.cache;
+
+// A cached id and its access frequency at the time it was read.
+public record HotKey(long id, int frequency) {
+}
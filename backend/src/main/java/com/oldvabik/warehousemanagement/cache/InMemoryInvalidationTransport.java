@@ -0,0 +1,25 @@
+package com.oldvabik.warehousemanagement.cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Delivers messages synchronously to every subscriber in this JVM, including the publisher.
+ * Used by tests and single-node setups that want the bus wired without a database.
+ */
+public class InMemoryInvalidationTransport implements InvalidationTransport {
+
+    private final List<Consumer<InvalidationMessage>> subscribers = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(InvalidationMessage message) {
+        subscribers.forEach(subscriber -> subscriber.accept(message));
+    }
+
+    @Override
+    public void subscribe(Consumer<InvalidationMessage> onMessage, Runnable onMissedMessages) {
+        subscribers.add(onMessage);
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.oldvabik.warehousemanagement.cache;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * A {@link RemoteStore} kept in this process, standing in for a shared store in tests and local
+ * runs. Values are copied in and out as bytes, so callers see the same encoding round trip as
+ * against a real store. Expired values are dropped lazily on access.
+ */
+public class InMemoryRemoteStore implements RemoteStore {
+
+    private final Map<String, Value> values = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> sets = new ConcurrentHashMap<>();
+    private final LongSupplier ticker;
+
+    public InMemoryRemoteStore() {
+        this(System::nanoTime);
+    }
+
+    InMemoryRemoteStore(LongSupplier ticker) {
+        this.ticker = ticker;
+    }
+
+    @Override
+    public byte[] get(String key) {
+        Value value = values.get(key);
+        if (value == null) {
+            return null;
+        }
+        if (ticker.getAsLong() - value.expiresAt >= 0) {
+            values.remove(key, value);
+            return null;
+        }
+        return value.bytes.clone();
+    }
+
+    @Override
+    public Map<String, byte[]> getAll(Collection<String> keys) {
+        Map<String, byte[]> found = new HashMap<>();
+        for (String key : keys) {
+            byte[] value = get(key);
+            if (value != null) {
+                found.put(key, value);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public void put(String key, byte[] value, Duration ttl) {
+        values.put(key, new Value(value.clone(), ticker.getAsLong() + ttl.toNanos()));
+    }
+
+    @Override
+    public void remove(String key) {
+        values.remove(key);
+    }
+
+    // Sets are only trimmed when drained; a real store would expire them with the given ttl.
+    @Override
+    public void addToSet(String key, long member, Duration ttl) {
+        sets.computeIfAbsent(key, name -> ConcurrentHashMap.newKeySet()).add(member);
+    }
+
+    @Override
+    public Set<Long> drainSet(String key) {
+        Set<Long> members = sets.remove(key);
+        return members == null ? Set.of() : Set.copyOf(members);
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    private record Value(byte[] bytes, long expiresAt) {
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.oldvabik.warehousemanagement.cache;
+
+/**
+ * Tells the other nodes that an entity was written, so they drop their copy of it and every
+ * cached value embedding it. Encoded as {@code origin|TYPE|id} to fit a notification payload.
+ */
+public record InvalidationMessage(String origin, EntityRef ref) {
+
+    private static final String SEPARATOR = "|";
+
+    public String encode() {
+        return origin + SEPARATOR + ref.type() + SEPARATOR + ref.id();
+    }
+
+    public static InvalidationMessage decode(String payload) {
+        int last = payload.lastIndexOf(SEPARATOR);
+        int middle = payload.lastIndexOf(SEPARATOR, last - 1);
+        if (middle <= 0) {
+            throw new IllegalArgumentException("Malformed invalidation message: " + payload);
+        }
+        EntityType type = EntityType.valueOf(payload.substring(middle + 1, last));
+        long id = Long.parseLong(payload.substring(last + 1));
+        return new InvalidationMessage(payload.substring(0, middle), new EntityRef(type, id));
+    }
+
+}
@@ -0,0 +1,16 @@
+package com.oldvabik.warehousemanagement.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries {@link InvalidationMessage}s between the nodes sharing the database. Delivery is
+ * best effort; a transport that may have dropped messages, for example while reconnecting,
+ * reports it through {@code onMissedMessages} so the subscriber can clear its caches.
+ */
+public interface InvalidationTransport {
+
+    void publish(InvalidationMessage message);
+
+    void subscribe(Consumer<InvalidationMessage> onMessage, Runnable onMissedMessages);
+
+}
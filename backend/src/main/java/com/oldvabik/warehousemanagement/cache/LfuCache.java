@@ -1,72 +1,558 @@
 package com.oldvabik.warehousemanagement.cache;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.LongSupplier;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 
 @Slf4j
-public abstract class LfuCache<T> {
+public abstract class LfuCache<T> implements EntityCache<T> {
 
-    private final int capacity;
-    private final Map<Long, Entry<T>> cache = new HashMap<>();
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_CAPACITY = 16;
 
-    protected static class Entry<T> {
-        T value;
-        int frequency;
+    private final String name;
+    private final Segment.Listener<T> listener;
+    private volatile Segment<T>[] segments;
+    private final StatsCounter stats = new StatsCounter();
+    private final Map<Long, Load<T>> loads = new ConcurrentHashMap<>();
+    private final Map<EntityRef, Set<Long>> dependents = new ConcurrentHashMap<>();
+    private final NegativeCache negatives;
+    private final long expireAfterWriteNanos;
+    private final long refreshAfterWriteNanos;
+    private volatile int capacity;
+    private volatile long maxWeight;
+    private Executor refreshExecutor = ForkJoinPool.commonPool();
+    private LongSupplier ticker = System::nanoTime;
 
-        Entry(T value) {
-            this.value = value;
-            this.frequency = 1;
-        }
+    protected LfuCache(String name, int capacity) {
+        this(name, new CacheSpec(capacity));
     }
 
-    protected LfuCache(int capacity) {
-        this.capacity = capacity;
+    protected LfuCache(String name, CacheSpec spec) {
+        this.name = name;
+        this.capacity = spec.getCapacity();
+        this.maxWeight = spec.getMaxWeight();
+        this.expireAfterWriteNanos = toNanos(spec.getExpireAfterWrite());
+        this.refreshAfterWriteNanos = toNanos(spec.getRefreshAfterWrite());
+        this.negatives = spec.getNegativeCapacity() > 0 && spec.getNegativeTtl() != null
+                ? new NegativeCache(spec.getNegativeCapacity(), spec.getNegativeTtl().toNanos())
+                : null;
+        this.listener = new Segment.Listener<>() {
+            @Override
+            public void stored(long key, T previous, T value) {
+                trackDependencies(key, previous, value);
+            }
+
+            @Override
+            public void removed(long key, T value) {
+                untrackDependencies(key, value, List.of());
+            }
+        };
+        this.segments = newSegments(capacity, maxWeight);
     }
 
-    public T get(Long id) {
-        Entry<T> entry = cache.get(id);
+    @Autowired
+    public void setRefreshExecutor(@Qualifier("cacheRefreshExecutor") Executor refreshExecutor) {
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    @Override
+    public T get(long id) {
+        Entry<T> entry = liveEntry(id);
         if (entry == null) {
+            stats.recordMiss();
             return null;
         }
-        entry.frequency++;
+        stats.recordHit();
         return entry.value;
     }
 
-    public void put(Long id, T value) {
-        if (cache.containsKey(id)) {
-            Entry<T> entry = cache.get(id);
-            entry.value = value;
-            entry.frequency++;
+    /**
+     * Returns the cached value or loads, caches and returns it. Concurrent misses for the same id
+     * wait for the single load already in flight instead of each hitting the database. A loader
+     * result of {@code null} is remembered for the negative TTL, if enabled, so repeated lookups of
+     * a missing id do not reach the database. Hits on entries older than the refresh interval
+     * return the current value and reload it in the background.
+     *
+     * <p>A hit allocates nothing as long as the loader is not a capturing lambda created per call.
+     */
+    @Override
+    public T getOrLoad(long id, LongFunction<T> loader) {
+        return getOrLoad(id, loader, loader);
+    }
+
+    // As getOrLoad, but background refreshes use the refresher, which may skip a level the loader reads.
+    T getOrLoad(long id, LongFunction<T> loader, LongFunction<T> refresher) {
+        Entry<T> entry = liveEntry(id);
+        if (entry != null) {
+            stats.recordHit();
+            if (refreshAfterWriteNanos > 0 && ticker.getAsLong() - entry.writeTime > refreshAfterWriteNanos) {
+                refreshAhead(id, refresher);
+            }
+            return entry.value;
+        }
+        stats.recordMiss();
+        if (negatives != null && negatives.contains(id, ticker.getAsLong())) {
+            stats.recordNegativeHit();
+            return null;
+        }
+        Load<T> pending = new Load<>();
+        Load<T> inFlight = loads.putIfAbsent(id, pending);
+        if (inFlight != null) {
+            return await(inFlight.result);
+        }
+        try {
+            entry = liveEntry(id);
+            T loaded = entry != null ? entry.value : load(id, loader, pending);
+            pending.result.complete(loaded);
+            return loaded;
+        } catch (RuntimeException e) {
+            pending.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            loads.remove(id, pending);
+        }
+    }
+
+    /**
+     * The hit path of {@link #getOrLoad} alone: returns and counts a live value that is not due for
+     * a refresh, otherwise returns {@code null} and counts nothing. Lets a wrapper skip building its
+     * loader when the value is already here.
+     */
+    T getFresh(long id) {
+        Entry<T> entry = liveEntry(id);
+        if (entry == null
+                || (refreshAfterWriteNanos > 0 && ticker.getAsLong() - entry.writeTime > refreshAfterWriteNanos)) {
+            return null;
+        }
+        stats.recordHit();
+        return entry.value;
+    }
+
+    /**
+     * Loads the ids that are not cached yet with a single call to {@code loader}, which returns the
+     * values it found keyed by id, and caches them. Ids already being loaded are skipped, and
+     * concurrent {@link #getOrLoad} calls for the claimed ids wait for this batch. Returns the
+     * number of values cached.
+     */
+    @Override
+    public int loadAll(long[] ids, Function<long[], Map<Long, T>> loader) {
+        Map<Long, Load<T>> claimed = new HashMap<>();
+        for (long id : ids) {
+            if (liveEntry(id) == null && !claimed.containsKey(id)) {
+                Load<T> pending = new Load<>();
+                if (loads.putIfAbsent(id, pending) == null) {
+                    claimed.put(id, pending);
+                }
+            }
+        }
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        try {
+            Map<Long, T> loaded = loader.apply(claimed.keySet().stream().mapToLong(Long::longValue).toArray());
+            stats.recordLoadSuccess(System.nanoTime() - start);
+            int cached = 0;
+            for (Map.Entry<Long, Load<T>> claim : claimed.entrySet()) {
+                long id = claim.getKey();
+                Load<T> pending = claim.getValue();
+                T value = loaded.get(id);
+                if (value != null) {
+                    store(id, value, () -> !pending.stale);
+                    cached++;
+                }
+                pending.result.complete(value);
+            }
+            return cached;
+        } catch (RuntimeException e) {
+            stats.recordLoadFailure(System.nanoTime() - start);
+            claimed.values().forEach(pending -> pending.result.completeExceptionally(e));
+            throw e;
+        } finally {
+            claimed.forEach(loads::remove);
+        }
+    }
+
+    @Override
+    public void put(long id, T value) {
+        markLoadStale(id);
+        clearNegative(id);
+        store(id, value, null);
+    }
+
+    @Override
+    public void remove(long id) {
+        markLoadStale(id);
+        clearNegative(id);
+        evict(id, null);
+    }
+
+    // Forgets that a lookup of this id found nothing; called whenever the id may have come into existence.
+    @Override
+    public void clearNegative(long id) {
+        if (negatives != null) {
+            negatives.remove(id);
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        loads.values().forEach(load -> load.stale = true);
+        if (negatives != null) {
+            negatives.clear();
+        }
+        for (Segment<T> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    // Removes the entity's own entry, if this cache holds that type, and every entry embedding it.
+    @Override
+    public void invalidate(EntityRef ref) {
+        if (ref.type() == entityType()) {
+            remove(ref.id());
+        }
+        invalidateDependents(ref);
+    }
+
+    /**
+     * Removes every entry whose value was built from the given entity. Loads in flight are marked
+     * stale as well, since they may have read the entity before it changed and are not indexed yet.
+     */
+    @Override
+    public void invalidateDependents(EntityRef ref) {
+        if (!dependsOn(ref.type())) {
+            return;
+        }
+        loads.values().forEach(load -> load.stale = true);
+        Set<Long> ids = dependents.get(ref);
+        if (ids != null) {
+            for (Long id : ids.toArray(new Long[0])) {
+                remove(id);
+            }
+        }
+    }
+
+    /**
+     * Changes the bounds. The number of stripes follows the capacity, one per
+     * {@value #MIN_SEGMENT_CAPACITY} entries up to {@value #MAX_SEGMENTS}, so when that number
+     * changes the cache is re-striped: every stripe is locked, the entries are copied into new
+     * stripes sized for the new bounds, and writes still aimed at the old stripes are retried on
+     * the new ones. Otherwise each stripe just gets its new share of the bounds.
+     */
+    @Override
+    public synchronized void resize(int capacity, long maxWeight) {
+        if (capacity < 0 || maxWeight < 0) {
+            throw new IllegalArgumentException("Cache bounds must not be negative");
+        }
+        this.capacity = capacity;
+        this.maxWeight = maxWeight;
+        Segment<T>[] current = segments;
+        if (segmentCountFor(capacity) == current.length) {
+            for (int i = 0; i < current.length; i++) {
+                current[i].resize(segmentShare(capacity, i, current.length), segmentShare(maxWeight, i, current.length));
+            }
         } else {
-            if (cache.size() >= capacity) {
-                evictLeastFrequentlyUsed();
+            restripe(current, newSegments(capacity, maxWeight));
+        }
+        log.info("Cache {} resized to capacity {} and max weight {}", name, capacity, maxWeight);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Segment<T> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    @Override
+    public long weight() {
+        long weight = 0;
+        for (Segment<T> segment : segments) {
+            weight += segment.weight();
+        }
+        return weight;
+    }
+
+    // The cached ids, most frequently used first.
+    @Override
+    public List<HotKey> hotKeys() {
+        List<HotKey> keys = new ArrayList<>();
+        for (Segment<T> segment : segments) {
+            segment.collectKeys(keys);
+        }
+        keys.sort(Comparator.comparingInt(HotKey::frequency).reversed());
+        return keys;
+    }
+
+    @Override
+    public void restoreFrequency(long id, int frequency) {
+        segmentFor(id).restoreFrequency(id, frequency);
+    }
+
+    @Override
+    public CacheStats stats() {
+        return stats.snapshot(name, size(), weight());
+    }
+
+    @Override
+    public void resetStats() {
+        stats.reset();
+    }
+
+    // Approximate retained size of a cached value in bytes, checked against maxWeight.
+    protected long weigh(T value) {
+        return 64;
+    }
+
+    // The type of entity this cache holds, keyed by its id.
+    protected EntityType entityType() {
+        return null;
+    }
+
+    // Whether values of this cache can embed entities of the given type.
+    protected boolean dependsOn(EntityType type) {
+        return false;
+    }
+
+    // The entities embedded in a cached value; a write to any of them invalidates the entry.
+    protected Collection<EntityRef> dependenciesOf(T value) {
+        return List.of();
+    }
+
+    protected static long weighString(String value) {
+        return value == null ? 0 : 40L + 2L * value.length();
+    }
+
+    void setTicker(LongSupplier ticker) {
+        this.ticker = ticker;
+    }
+
+    int segmentCount() {
+        return segments.length;
+    }
+
+    // Indexes the new dependencies before dropping the old ones, so an entry is never briefly unindexed.
+    private void trackDependencies(long id, T previous, T value) {
+        Collection<EntityRef> refs = dependenciesOf(value);
+        for (EntityRef ref : refs) {
+            dependents.compute(ref, (key, ids) -> {
+                Set<Long> indexed = ids != null ? ids : ConcurrentHashMap.newKeySet();
+                indexed.add(id);
+                return indexed;
+            });
+        }
+        if (previous != null) {
+            untrackDependencies(id, previous, refs);
+        }
+    }
+
+    private void untrackDependencies(long id, T value, Collection<EntityRef> kept) {
+        for (EntityRef ref : dependenciesOf(value)) {
+            if (!kept.contains(ref)) {
+                dependents.computeIfPresent(ref, (key, ids) -> {
+                    ids.remove(id);
+                    return ids.isEmpty() ? null : ids;
+                });
             }
-            cache.put(id, new Entry<>(value));
         }
     }
 
-    private void evictLeastFrequentlyUsed() {
-        Long lfuKey = null;
-        int minFrequency = Integer.MAX_VALUE;
+    private Entry<T> liveEntry(long id) {
+        Segment<T> segment = segmentFor(id);
+        Entry<T> entry = segment.get(id);
+        if (entry != null && expireAfterWriteNanos > 0
+                && ticker.getAsLong() - entry.writeTime > expireAfterWriteNanos) {
+            segment.expire(entry);
+            return null;
+        }
+        return entry;
+    }
 
-        for (Map.Entry<Long, Entry<T>> entry : cache.entrySet()) {
-            if (entry.getValue().frequency < minFrequency) {
-                minFrequency = entry.getValue().frequency;
-                lfuKey = entry.getKey();
+    private void refreshAhead(long id, LongFunction<T> loader) {
+        Load<T> pending = new Load<>();
+        if (loads.putIfAbsent(id, pending) != null) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> refresh(id, loader, pending));
+        } catch (RejectedExecutionException e) {
+            loads.remove(id, pending);
+            pending.result.complete(null);
+        }
+    }
+
+    private void refresh(long id, LongFunction<T> loader, Load<T> pending) {
+        try {
+            T loaded = load(id, loader, pending);
+            if (loaded == null) {
+                evict(id, () -> !pending.stale);
             }
+            pending.result.complete(loaded);
+        } catch (RuntimeException e) {
+            log.warn("Background refresh of {} with id {} failed: {}", name, id, e.getMessage());
+            pending.result.completeExceptionally(e);
+        } finally {
+            loads.remove(id, pending);
         }
+    }
 
-        if (lfuKey != null) {
-            cache.remove(lfuKey);
+    private T load(long id, LongFunction<T> loader, Load<T> pending) {
+        long start = System.nanoTime();
+        T loaded;
+        try {
+            loaded = loader.apply(id);
+        } catch (RuntimeException e) {
+            stats.recordLoadFailure(System.nanoTime() - start);
+            throw e;
+        }
+        if (loaded == null) {
+            stats.recordLoadFailure(System.nanoTime() - start);
+            if (negatives != null) {
+                negatives.add(id, ticker.getAsLong());
+                if (pending.stale) {
+                    negatives.remove(id);
+                }
+            }
+            return null;
         }
+        stats.recordLoadSuccess(System.nanoTime() - start);
+        store(id, loaded, () -> !pending.stale);
+        return loaded;
     }
 
-    public void remove(Long id) {
-        cache.remove(id);
+    // A write racing with a load wins: the loaded value may predate it and must not be cached.
+    private void markLoadStale(long id) {
+        Load<T> inFlight = loads.get(id);
+        if (inFlight != null) {
+            inFlight.stale = true;
+        }
+    }
+
+    private T await(CompletableFuture<T> inFlight) {
+        try {
+            return inFlight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // Retries on the current stripes if a re-stripe retired the one the write was aimed at.
+    private void store(long id, T value, BooleanSupplier guard) {
+        long valueWeight = weigh(value);
+        while (!segmentFor(id).put(id, value, valueWeight, ticker.getAsLong(), guard)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private void evict(long id, BooleanSupplier guard) {
+        while (!segmentFor(id).remove(id, guard)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Fills the new stripes before publishing them, while every old stripe is locked, so no write
+     * can land in a new stripe and then be overwritten by an older copied entry.
+     */
+    private void restripe(Segment<T>[] current, Segment<T>[] restriped) {
+        for (Segment<T> segment : current) {
+            segment.lock();
+        }
+        try {
+            for (Segment<T> segment : current) {
+                segment.transferTo(id -> segmentFor(restriped, id));
+            }
+            segments = restriped;
+            for (Segment<T> segment : current) {
+                segment.retire();
+            }
+        } finally {
+            for (Segment<T> segment : current) {
+                segment.unlock();
+            }
+        }
     }
 
-    public void clear() {
-        cache.clear();
+    @SuppressWarnings("unchecked")
+    private Segment<T>[] newSegments(int capacity, long maxWeight) {
+        int count = segmentCountFor(capacity);
+        Segment<T>[] created = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            created[i] = new Segment<>(segmentShare(capacity, i, count), segmentShare(maxWeight, i, count),
+                    stats, listener);
+        }
+        return created;
     }
-}
\ No newline at end of file
+
+    private Segment<T> segmentFor(long id) {
+        return segmentFor(segments, id);
+    }
+
+    private static <T> Segment<T> segmentFor(Segment<T>[] segments, long id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return segments[(int) (hash >>> 32) & (segments.length - 1)];
+    }
+
+    private static int segmentShare(int total, int index, int count) {
+        return total / count + (index < total % count ? 1 : 0);
+    }
+
+    private static long segmentShare(long total, int index, int count) {
+        return total / count + (index < total % count ? 1 : 0);
+    }
+
+    private static int segmentCountFor(int capacity) {
+        int wanted = Math.max(1, Math.min(MAX_SEGMENTS, capacity / MIN_SEGMENT_CAPACITY));
+        return Integer.highestOneBit(wanted);
+    }
+
+    private static long toNanos(Duration duration) {
+        return duration == null ? 0 : duration.toNanos();
+    }
+
+    private static class Load<T> {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        volatile boolean stale;
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.oldvabik.warehousemanagement.cache;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Remembers ids whose load found nothing, for a short time. It is a fixed-size direct-mapped
+ * table: a colliding id simply overwrites the slot, which costs at most one extra lookup but
+ * keeps memory bounded and reads lock-free.
+ */
+class NegativeCache {
+
+    private final AtomicReferenceArray<Marker> slots;
+    private final long ttlNanos;
+
+    NegativeCache(int capacity, long ttlNanos) {
+        int size = capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.ttlNanos = ttlNanos;
+    }
+
+    boolean contains(long key, long now) {
+        Marker marker = slots.get(slotFor(key));
+        return marker != null && marker.key == key && now - marker.expiresAt < 0;
+    }
+
+    void add(long key, long now) {
+        slots.set(slotFor(key), new Marker(key, now + ttlNanos));
+    }
+
+    void remove(long key) {
+        int slot = slotFor(key);
+        Marker marker = slots.get(slot);
+        if (marker != null && marker.key == key) {
+            slots.compareAndSet(slot, marker, null);
+        }
+    }
+
+    void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, null);
+        }
+    }
+
+    private int slotFor(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & (slots.length() - 1);
+    }
+
+    private record Marker(long key, long expiresAt) {
+    }
+
+}
@@ -1,11 +1,59 @@
 package com.oldvabik.warehousemanagement.cache;
 
-import com.oldvabik.warehousemanagement.model.Order;
+import com.oldvabik.warehousemanagement.config.CacheProperties;
+import com.oldvabik.warehousemanagement.model.OrderProductSnapshot;
+import com.oldvabik.warehousemanagement.model.OrderSnapshot;
+import com.oldvabik.warehousemanagement.model.ProductSnapshot;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
 import org.springframework.stereotype.Component;
 
 @Component
-public class OrderCache extends LfuCache<Order> {
-    public OrderCache() {
-        super(10);
+public class OrderCache extends LfuCache<OrderSnapshot> {
+    public OrderCache(CacheProperties properties) {
+        super("orders", properties.getOrders());
+    }
+
+    @Override
+    protected long weigh(OrderSnapshot order) {
+        long weight = 64;
+        if (order.user() != null) {
+            weight += 48 + weighString(order.user().email());
+        }
+        for (OrderProductSnapshot line : order.orderProducts()) {
+            weight += 64 + (line.product() == null ? 0 : 48 + weighString(line.product().name()));
+        }
+        return weight;
+    }
+
+    @Override
+    protected EntityType entityType() {
+        return EntityType.ORDER;
+    }
+
+    @Override
+    protected boolean dependsOn(EntityType type) {
+        return type != EntityType.ORDER;
+    }
+
+    // An order embeds its user and its products together with their categories.
+    @Override
+    protected Collection<EntityRef> dependenciesOf(OrderSnapshot order) {
+        Set<EntityRef> refs = new HashSet<>();
+        if (order.user() != null && order.user().id() != null) {
+            refs.add(EntityRef.user(order.user().id()));
+        }
+        for (OrderProductSnapshot line : order.orderProducts()) {
+            ProductSnapshot product = line.product();
+            if (product == null || product.id() == null) {
+                continue;
+            }
+            refs.add(EntityRef.product(product.id()));
+            if (product.category() != null && product.category().id() != null) {
+                refs.add(EntityRef.category(product.category().id()));
+            }
+        }
+        return refs;
     }
 }
@@ -0,0 +1,132 @@
+package com.oldvabik.warehousemanagement.cache;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Publishes through {@code pg_notify} and listens on one dedicated connection held by a daemon
+ * thread. Postgres does not queue notifications for a listener that is away, so every reconnect
+ * is reported to the subscribers as a gap.
+ */
+@Slf4j
+public class PostgresInvalidationTransport implements InvalidationTransport, AutoCloseable {
+
+    private static final Pattern CHANNEL = Pattern.compile("[a-z_][a-z0-9_]*");
+    private static final int POLL_MILLIS = 500;
+    private static final long MIN_RECONNECT_MILLIS = 1_000;
+    private static final long MAX_RECONNECT_MILLIS = 30_000;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final String channel;
+    private final List<Consumer<InvalidationMessage>> subscribers = new CopyOnWriteArrayList<>();
+    private final List<Runnable> gapHandlers = new CopyOnWriteArrayList<>();
+    private volatile boolean running = true;
+    private Thread listener;
+
+    public PostgresInvalidationTransport(DataSource dataSource, String channel) {
+        if (!CHANNEL.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Invalid notification channel: " + channel);
+        }
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.channel = channel;
+    }
+
+    @Override
+    public void publish(InvalidationMessage message) {
+        try {
+            jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, channel, message.encode());
+        } catch (DataAccessException e) {
+            log.warn("Could not publish cache invalidation {}: {}", message.encode(), e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void subscribe(Consumer<InvalidationMessage> onMessage, Runnable onMissedMessages) {
+        subscribers.add(onMessage);
+        gapHandlers.add(onMissedMessages);
+        if (listener == null) {
+            listener = new Thread(this::listen, "CacheInvalidation-" + channel);
+            listener.setDaemon(true);
+            listener.start();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws InterruptedException {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+            listener.join(MAX_RECONNECT_MILLIS);
+        }
+    }
+
+    private void listen() {
+        long reconnectDelay = MIN_RECONNECT_MILLIS;
+        boolean listenedBefore = false;
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                if (listenedBefore) {
+                    log.warn("Cache invalidation listener reconnected; clearing caches");
+                    gapHandlers.forEach(Runnable::run);
+                }
+                listenedBefore = true;
+                reconnectDelay = MIN_RECONNECT_MILLIS;
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_MILLIS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            deliver(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Cache invalidation listener lost its connection: {}", e.getMessage());
+                try {
+                    Thread.sleep(reconnectDelay);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                reconnectDelay = Math.min(reconnectDelay * 2, MAX_RECONNECT_MILLIS);
+            }
+        }
+    }
+
+    private void deliver(String payload) {
+        InvalidationMessage message;
+        try {
+            message = InvalidationMessage.decode(payload);
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring cache invalidation: {}", e.getMessage());
+            return;
+        }
+        for (Consumer<InvalidationMessage> subscriber : subscribers) {
+            try {
+                subscriber.accept(message);
+            } catch (RuntimeException e) {
+                log.warn("Cache invalidation {} failed: {}", payload, e.getMessage());
+            }
+        }
+    }
+
+}
@@ -1,11 +1,41 @@
 package com.oldvabik.warehousemanagement.cache;
 
-import com.oldvabik.warehousemanagement.model.Product;
+import com.oldvabik.warehousemanagement.config.CacheProperties;
+import com.oldvabik.warehousemanagement.model.ProductSnapshot;
+import java.util.Collection;
+import java.util.List;
 import org.springframework.stereotype.Component;
 
 @Component
-public class ProductCache extends LfuCache<Product> {
-    public ProductCache() {
-        super(10);
+public class ProductCache extends LfuCache<ProductSnapshot> {
+
+    public ProductCache(CacheProperties properties) {
+        super("products", properties.getProducts());
+    }
+
+    @Override
+    protected long weigh(ProductSnapshot product) {
+        long weight = 64 + weighString(product.name());
+        if (product.category() != null) {
+            weight += 32 + weighString(product.category().name());
+        }
+        return weight;
+    }
+
+    @Override
+    protected EntityType entityType() {
+        return EntityType.PRODUCT;
+    }
+
+    @Override
+    protected boolean dependsOn(EntityType type) {
+        return type == EntityType.CATEGORY;
+    }
+
+    @Override
+    protected Collection<EntityRef> dependenciesOf(ProductSnapshot product) {
+        return product.category() == null || product.category().id() == null
+                ? List.of()
+                : List.of(EntityRef.category(product.category().id()));
     }
 }
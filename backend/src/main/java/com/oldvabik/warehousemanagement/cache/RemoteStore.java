@@ -0,0 +1,30 @@
+package com.oldvabik.warehousemanagement.cache;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An out-of-process key/value store shared by every node, used as the second level of a
+ * {@link TwoLevelCache}. The operations map directly onto a store such as Redis: plain values with
+ * a time to live, and sets of ids used as reverse dependency indexes. Implementations may throw
+ * unchecked exceptions when the store is unreachable; the cache then falls back to the database.
+ */
+public interface RemoteStore {
+
+    byte[] get(String key);
+
+    // Returns the values that exist, keyed by their key.
+    Map<String, byte[]> getAll(Collection<String> keys);
+
+    void put(String key, byte[] value, Duration ttl);
+
+    void remove(String key);
+
+    void addToSet(String key, long member, Duration ttl);
+
+    // Removes the set and returns its members.
+    Set<Long> drainSet(String key);
+
+}
@@ -0,0 +1,330 @@
+package com.oldvabik.warehousemanagement.cache;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongFunction;
+
+/**
+ * One stripe of an {@link LfuCache}. Lookups read the {@link EntryTable} without locking;
+ * hits are counted atomically on the entry and folded into the frequency list whenever
+ * the stripe lock is free, so a hot key never makes its readers queue up.
+ *
+ * <p>When the stripe is full a newcomer is admitted only if the {@link FrequencySketch}
+ * estimates it to be more popular than the eviction victim. Each time the sketch halves
+ * its counters the entry frequencies are halved as well, so yesterday's hot keys age out.
+ *
+ * <p>Every store and every removal, whether explicit, by eviction or by expiry, is reported
+ * to the {@link Listener} while the stripe lock is held, so the owner can keep its dependency
+ * index in step with the entries.
+ *
+ * <p>When the owner re-stripes, the entries are copied into the new stripes and this one is
+ * retired: writes that reach it afterwards report so and are retried on the current stripe.
+ */
+class Segment<T> {
+
+    // The highest count a FrequencySketch counter can hold.
+    private static final int MAX_SKETCH_COUNT = 15;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final EntryTable<T> entries = new EntryTable<>();
+    private final FrequencyList<T> frequencies = new FrequencyList<>();
+    private final StatsCounter stats;
+    private final Listener<T> listener;
+    private FrequencySketch sketch;
+    private int capacity;
+    private long maxWeight;
+    private int size;
+    private long weight;
+    private boolean retired;
+
+    Segment(int capacity, long maxWeight, StatsCounter stats, Listener<T> listener) {
+        this.stats = stats;
+        this.listener = listener;
+        this.capacity = capacity;
+        this.maxWeight = maxWeight;
+        this.sketch = new FrequencySketch(capacity);
+    }
+
+    Entry<T> get(long key) {
+        Entry<T> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        entry.recordHit();
+        if (lock.tryLock()) {
+            try {
+                applyPendingHits(entry);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return entry;
+    }
+
+    // Returns false only if the stripe was retired and the put must go to the current stripe.
+    boolean put(long key, T value, long valueWeight, long now, BooleanSupplier guard) {
+        lock.lock();
+        try {
+            if (retired) {
+                return false;
+            }
+            if (guard != null && !guard.getAsBoolean()) {
+                return true;
+            }
+            stats.recordPut();
+            Entry<T> entry = entries.get(key);
+            if (entry != null) {
+                T previous = entry.value;
+                entry.value = value;
+                entry.writeTime = now;
+                weight += valueWeight - entry.weight;
+                entry.weight = valueWeight;
+                entry.recordHit();
+                applyPendingHits(entry);
+                listener.stored(key, previous, value);
+                evictWhileOverBounds();
+                return true;
+            }
+            if (capacity <= 0 || (maxWeight > 0 && valueWeight > maxWeight)) {
+                stats.recordRejection();
+                return true;
+            }
+            recordAccess(key);
+            if (isFull(valueWeight) && !admit(key)) {
+                stats.recordRejection();
+                return true;
+            }
+            while (size > 0 && isFull(valueWeight)) {
+                evict();
+            }
+            entry = new Entry<>(key, value);
+            entry.weight = valueWeight;
+            entry.writeTime = now;
+            entries.put(entry);
+            frequencies.add(entry);
+            size++;
+            weight += valueWeight;
+            listener.stored(key, null, value);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void resize(int capacity, long maxWeight) {
+        lock.lock();
+        try {
+            this.capacity = capacity;
+            this.maxWeight = maxWeight;
+            this.sketch = new FrequencySketch(capacity);
+            evictWhileOverBounds();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Raises a cached entry's frequency to at least {@code frequency} and records as many accesses
+     * in the sketch, up to its counter limit, so the entry is neither the first victim nor easily
+     * displaced by a newcomer. Does nothing if the key is not cached.
+     */
+    void restoreFrequency(long key, int frequency) {
+        lock.lock();
+        try {
+            Entry<T> entry = entries.get(key);
+            if (entry == null || entry.bucket == null) {
+                return;
+            }
+            applyPendingHits(entry);
+            for (int i = entry.frequency(); i < frequency; i++) {
+                frequencies.increment(entry);
+            }
+            int sketched = Math.min(frequency, MAX_SKETCH_COUNT);
+            for (int i = 0; i < sketched && sketch.frequency(key) < sketched; i++) {
+                recordAccess(key);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Returns false only if the stripe was retired and the removal must go to the current stripe.
+    boolean remove(long key, BooleanSupplier guard) {
+        lock.lock();
+        try {
+            if (retired) {
+                return false;
+            }
+            if (guard != null && !guard.getAsBoolean()) {
+                return true;
+            }
+            Entry<T> entry = entries.get(key);
+            if (entry != null) {
+                unlink(entry);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void expire(Entry<T> entry) {
+        lock.lock();
+        try {
+            if (entries.get(entry.key) == entry) {
+                unlink(entry);
+                stats.recordExpiration();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long weight() {
+        lock.lock();
+        try {
+            return weight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void collectKeys(List<HotKey> into) {
+        lock.lock();
+        try {
+            entries.forEach(entry -> into.add(new HotKey(entry.key, entry.frequency())));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void clear() {
+        lock.lock();
+        try {
+            if (retired) {
+                return;
+            }
+            entries.forEach(entry -> listener.removed(entry.key, entry.value));
+            entries.clear();
+            frequencies.clear();
+            size = 0;
+            weight = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void lock() {
+        lock.lock();
+    }
+
+    void unlock() {
+        lock.unlock();
+    }
+
+    // Copies every entry, with its frequency, into the stripe the router picks; the caller holds the lock.
+    void transferTo(LongFunction<Segment<T>> router) {
+        entries.forEach(entry -> router.apply(entry.key).adopt(entry));
+    }
+
+    /**
+     * Empties the stripe without reporting removals, since its entries live on in the new stripes,
+     * and turns away every later write. The caller holds the lock.
+     */
+    void retire() {
+        retired = true;
+        entries.clear();
+        frequencies.clear();
+        size = 0;
+        weight = 0;
+    }
+
+    // Called on a stripe that is not published yet, so nothing else can touch it.
+    private void adopt(Entry<T> source) {
+        Entry<T> entry = new Entry<>(source.key, source.value);
+        entry.weight = source.weight;
+        entry.writeTime = source.writeTime;
+        entries.put(entry);
+        frequencies.add(entry);
+        for (int i = 1; i < source.frequency(); i++) {
+            frequencies.increment(entry);
+        }
+        size++;
+        weight += entry.weight;
+        evictWhileOverBounds();
+    }
+
+    private void unlink(Entry<T> entry) {
+        entries.remove(entry.key);
+        frequencies.unlink(entry);
+        size--;
+        weight -= entry.weight;
+        listener.removed(entry.key, entry.value);
+    }
+
+    private boolean isFull(long incomingWeight) {
+        return size >= capacity || (maxWeight > 0 && weight + incomingWeight > maxWeight);
+    }
+
+    private void evictWhileOverBounds() {
+        while (size > 0 && (size > capacity || (maxWeight > 0 && weight > maxWeight))) {
+            evict();
+        }
+    }
+
+    private boolean admit(long candidate) {
+        Entry<T> victim = victim();
+        return victim == null || sketch.frequency(candidate) > sketch.frequency(victim.key);
+    }
+
+    private Entry<T> victim() {
+        Entry<T> victim = frequencies.victim();
+        for (int attempts = size; victim != null && victim.hasPendingHits() && attempts > 0; attempts--) {
+            applyPendingHits(victim);
+            victim = frequencies.victim();
+        }
+        return victim;
+    }
+
+    private void evict() {
+        Entry<T> victim = victim();
+        if (victim != null) {
+            unlink(victim);
+            stats.recordEviction();
+        }
+    }
+
+    private void applyPendingHits(Entry<T> entry) {
+        int hits = entry.takePendingHits();
+        if (entry.bucket == null) {
+            return;
+        }
+        for (int i = 0; i < hits; i++) {
+            frequencies.increment(entry);
+            recordAccess(entry.key);
+        }
+    }
+
+    private void recordAccess(long key) {
+        if (sketch.increment(key)) {
+            frequencies.halve();
+        }
+    }
+
+    interface Listener<T> {
+        void stored(long key, T previous, T value);
+
+        void removed(long key, T value);
+    }
+
+}
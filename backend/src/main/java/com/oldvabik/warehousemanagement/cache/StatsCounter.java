@@ -0,0 +1,74 @@
+package com.oldvabik.warehousemanagement.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+class StatsCounter {
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder loadSuccesses = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder totalLoadTime = new LongAdder();
+
+    void recordHit() {
+        hits.increment();
+    }
+
+    void recordMiss() {
+        misses.increment();
+    }
+
+    void recordNegativeHit() {
+        negativeHits.increment();
+    }
+
+    void recordPut() {
+        puts.increment();
+    }
+
+    void recordRejection() {
+        rejections.increment();
+    }
+
+    void recordEviction() {
+        evictions.increment();
+    }
+
+    void recordExpiration() {
+        expirations.increment();
+    }
+
+    void recordLoadSuccess(long loadTime) {
+        loadSuccesses.increment();
+        totalLoadTime.add(loadTime);
+    }
+
+    void recordLoadFailure(long loadTime) {
+        loadFailures.increment();
+        totalLoadTime.add(loadTime);
+    }
+
+    CacheStats snapshot(String name, int size, long weight) {
+        return new CacheStats(name, hits.sum(), misses.sum(), negativeHits.sum(), puts.sum(), rejections.sum(), evictions.sum(),
+                expirations.sum(), loadSuccesses.sum(), loadFailures.sum(), totalLoadTime.sum(), size, weight);
+    }
+
+    void reset() {
+        hits.reset();
+        misses.reset();
+        negativeHits.reset();
+        puts.reset();
+        rejections.reset();
+        evictions.reset();
+        expirations.reset();
+        loadSuccesses.reset();
+        loadFailures.reset();
+        totalLoadTime.reset();
+    }
+
+}
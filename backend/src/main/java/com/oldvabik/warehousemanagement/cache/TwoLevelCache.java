@@ -0,0 +1,250 @@
+package com.oldvabik.warehousemanagement.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * An in-process {@link LfuCache} in front of a {@link RemoteStore} shared by all nodes. A local
+ * miss is looked up in the store before the database, and database loads and writes are copied
+ * to the store as JSON, so the working set is not limited to one heap and a node that just
+ * started finds most entries already loaded by its peers.
+ *
+ * <p>The store keeps, for every entity a value embeds, the set of ids depending on it, so
+ * invalidations remove exactly the affected remote entries, as they do locally. A load racing
+ * with a write may still leave the old value in the store until its time to live runs out.
+ * When the store is unreachable the cache degrades to its local level and the database.
+ */
+@Slf4j
+public class TwoLevelCache<T> implements EntityCache<T> {
+
+    private final LfuCache<T> local;
+    private final RemoteStore remote;
+    private final ObjectMapper objectMapper;
+    private final Class<T> type;
+    private final Duration ttl;
+
+    public TwoLevelCache(LfuCache<T> local, RemoteStore remote, ObjectMapper objectMapper,
+                         Class<T> type, Duration ttl) {
+        this.local = local;
+        this.remote = remote;
+        this.objectMapper = objectMapper;
+        this.type = type;
+        this.ttl = ttl;
+    }
+
+    @Override
+    public String getName() {
+        return local.getName();
+    }
+
+    // Does not copy a remote hit into the local level, which could overwrite a concurrent write.
+    @Override
+    public T get(long id) {
+        T value = local.get(id);
+        return value != null ? value : fetch(id);
+    }
+
+    // Checks the local level first, so a hit does not allocate the loaders that go through the store.
+    // A refresh skips the store, whose copy is at least as old as the local one.
+    @Override
+    public T getOrLoad(long id, LongFunction<T> loader) {
+        T value = local.getFresh(id);
+        return value != null ? value
+                : local.getOrLoad(id, key -> loadThrough(key, loader), key -> reload(key, loader));
+    }
+
+    @Override
+    public int loadAll(long[] ids, Function<long[], Map<Long, T>> loader) {
+        return local.loadAll(ids, missing -> {
+            Map<Long, T> found = fetchAll(missing);
+            long[] rest = Arrays.stream(missing).filter(id -> !found.containsKey(id)).toArray();
+            if (rest.length > 0) {
+                Map<Long, T> loaded = loader.apply(rest);
+                loaded.forEach(this::store);
+                found.putAll(loaded);
+            }
+            return found;
+        });
+    }
+
+    @Override
+    public void put(long id, T value) {
+        local.put(id, value);
+        store(id, value);
+    }
+
+    @Override
+    public void remove(long id) {
+        local.remove(id);
+        removeRemote(id);
+    }
+
+    @Override
+    public void clearNegative(long id) {
+        local.clearNegative(id);
+    }
+
+    // Remote entries are kept: writes remove them as they happen, and the rest expire.
+    @Override
+    public void clear() {
+        local.clear();
+    }
+
+    @Override
+    public void invalidate(EntityRef ref) {
+        local.invalidate(ref);
+        if (ref.type() == local.entityType()) {
+            removeRemote(ref.id());
+        }
+        invalidateRemoteDependents(ref);
+    }
+
+    @Override
+    public void invalidateDependents(EntityRef ref) {
+        local.invalidateDependents(ref);
+        invalidateRemoteDependents(ref);
+    }
+
+    @Override
+    public List<HotKey> hotKeys() {
+        return local.hotKeys();
+    }
+
+    @Override
+    public void restoreFrequency(long id, int frequency) {
+        local.restoreFrequency(id, frequency);
+    }
+
+    @Override
+    public void resize(int capacity, long maxWeight) {
+        local.resize(capacity, maxWeight);
+    }
+
+    @Override
+    public int getCapacity() {
+        return local.getCapacity();
+    }
+
+    @Override
+    public long getMaxWeight() {
+        return local.getMaxWeight();
+    }
+
+    @Override
+    public int size() {
+        return local.size();
+    }
+
+    @Override
+    public long weight() {
+        return local.weight();
+    }
+
+    @Override
+    public CacheStats stats() {
+        return local.stats();
+    }
+
+    @Override
+    public void resetStats() {
+        local.resetStats();
+    }
+
+    private T loadThrough(long id, LongFunction<T> loader) {
+        T value = fetch(id);
+        if (value == null) {
+            value = loader.apply(id);
+            if (value != null) {
+                store(id, value);
+            }
+        }
+        return value;
+    }
+
+    // Loads from the database and replaces the remote copy; the local level stores the result itself.
+    private T reload(long id, LongFunction<T> loader) {
+        T value = loader.apply(id);
+        if (value != null) {
+            store(id, value);
+        } else {
+            removeRemote(id);
+        }
+        return value;
+    }
+
+    private T fetch(long id) {
+        try {
+            byte[] bytes = remote.get(keyOf(id));
+            return bytes == null ? null : objectMapper.readValue(bytes, type);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Remote lookup of {} with id {} failed: {}", getName(), id, e.getMessage());
+            return null;
+        }
+    }
+
+    private Map<Long, T> fetchAll(long[] ids) {
+        Map<Long, T> found = new HashMap<>();
+        try {
+            Map<String, byte[]> values = remote.getAll(Arrays.stream(ids).mapToObj(this::keyOf).toList());
+            for (long id : ids) {
+                byte[] bytes = values.get(keyOf(id));
+                if (bytes != null) {
+                    found.put(id, objectMapper.readValue(bytes, type));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Remote batch lookup of {} failed: {}", getName(), e.getMessage());
+        }
+        return found;
+    }
+
+    // Indexes the dependencies before publishing the value, so an invalidation never misses it.
+    private void store(long id, T value) {
+        try {
+            for (EntityRef ref : local.dependenciesOf(value)) {
+                remote.addToSet(dependentsKeyOf(ref), id, ttl);
+            }
+            remote.put(keyOf(id), objectMapper.writeValueAsBytes(value), ttl);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Remote store of {} with id {} failed: {}", getName(), id, e.getMessage());
+        }
+    }
+
+    private void removeRemote(long id) {
+        try {
+            remote.remove(keyOf(id));
+        } catch (RuntimeException e) {
+            log.warn("Remote removal of {} with id {} failed: {}", getName(), id, e.getMessage());
+        }
+    }
+
+    private void invalidateRemoteDependents(EntityRef ref) {
+        if (!local.dependsOn(ref.type())) {
+            return;
+        }
+        try {
+            for (long id : remote.drainSet(dependentsKeyOf(ref))) {
+                remote.remove(keyOf(id));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Remote invalidation of {} dependents of {} failed: {}", getName(), ref, e.getMessage());
+        }
+    }
+
+    private String keyOf(long id) {
+        return getName() + ":" + id;
+    }
+
+    private String dependentsKeyOf(EntityRef ref) {
+        return getName() + ":dependents:" + ref.type() + ":" + ref.id();
+    }
+
+}
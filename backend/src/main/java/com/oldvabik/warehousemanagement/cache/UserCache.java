@@ -1,11 +1,22 @@
 package com.oldvabik.warehousemanagement.cache;
 
-import com.oldvabik.warehousemanagement.model.User;
+import com.oldvabik.warehousemanagement.config.CacheProperties;
+import com.oldvabik.warehousemanagement.model.UserSnapshot;
 import org.springframework.stereotype.Component;
 
 @Component
-public class UserCache extends LfuCache<User> {
-    public UserCache() {
-        super(5);
+public class UserCache extends LfuCache<UserSnapshot> {
+    public UserCache(CacheProperties properties) {
+        super("users", properties.getUsers());
+    }
+
+    @Override
+    protected long weigh(UserSnapshot user) {
+        return 48 + weighString(user.firstName()) + weighString(user.lastName()) + weighString(user.email());
+    }
+
+    @Override
+    protected EntityType entityType() {
+        return EntityType.USER;
     }
 }
@@ -21,4 +21,59 @@ public class AsyncConfig {
         return executor;
     }
 
+    @Bean(name = "cacheRefreshExecutor")
+    public Executor cacheRefreshExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(1000);
+        executor.setThreadNamePrefix("CacheRefresh-");
+        executor.initialize();
+        return executor;
+    }
+
+    // One long-running thread per intake worker; they only start when order intake is enabled.
+    @Bean(name = "orderIntakeExecutor")
+    public Executor orderIntakeExecutor(OrderProperties orderProperties) {
+        OrderProperties.Intake intake = orderProperties.getIntake();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(intake.getWorkers());
+        executor.setMaxPoolSize(intake.getWorkers());
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("OrderIntake-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    // A single thread collects orders into groups; it only starts when group commit is enabled.
+    @Bean(name = "orderGroupCollectorExecutor")
+    public Executor orderGroupCollectorExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("OrderGroupCollector-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    // Commits closed groups; when every committer is busy and the queue is full the collector commits the group itself.
+    @Bean(name = "orderGroupCommitExecutor")
+    public Executor orderGroupCommitExecutor(OrderProperties orderProperties) {
+        OrderProperties.GroupCommit groupCommit = orderProperties.getGroupCommit();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(groupCommit.getCommitters());
+        executor.setMaxPoolSize(groupCommit.getCommitters());
+        executor.setQueueCapacity(groupCommit.getCommitters());
+        executor.setThreadNamePrefix("OrderGroupCommit-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
 }
@@ -0,0 +1,26 @@
+package com.oldvabik.warehousemanagement.config;
+
+import com.oldvabik.warehousemanagement.cache.InMemoryInvalidationTransport;
+import com.oldvabik.warehousemanagement.cache.InvalidationTransport;
+import com.oldvabik.warehousemanagement.cache.PostgresInvalidationTransport;
+import javax.sql.DataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class CacheInvalidationConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "cache.invalidation.transport", havingValue = "memory")
+    public InvalidationTransport inMemoryInvalidationTransport() {
+        return new InMemoryInvalidationTransport();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "cache.invalidation.transport", havingValue = "postgres")
+    public InvalidationTransport postgresInvalidationTransport(DataSource dataSource, CacheProperties properties) {
+        return new PostgresInvalidationTransport(dataSource, properties.getInvalidation().getChannel());
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.oldvabik.warehousemanagement.config;
+
+import com.oldvabik.warehousemanagement.cache.CacheSpec;
+import java.time.Duration;
+import java.util.UUID;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "cache")
+public class CacheProperties {
+
+    private CacheSpec products = new CacheSpec(10);
+    private CacheSpec categories = new CacheSpec(3);
+    private CacheSpec users = new CacheSpec(5);
+    private CacheSpec orders = new CacheSpec(10);
+    private int collectionCapacity = 256;
+    private Invalidation invalidation = new Invalidation();
+    private Persistence persistence = new Persistence();
+    private Remote remote = new Remote();
+
+    @Data
+    public static class Invalidation {
+
+        // none, memory or postgres; other nodes only see this node's writes with postgres.
+        private String transport = "none";
+        private String nodeId = UUID.randomUUID().toString();
+        private String channel = "cache_invalidation";
+
+    }
+
+    @Data
+    public static class Persistence {
+
+        // When enabled, cached ids are saved to the file periodically and reloaded after a restart.
+        private boolean enabled;
+        private String path = "cache-snapshot.txt";
+        private Duration interval = Duration.ofMinutes(5);
+        private int batchSize = 200;
+
+    }
+
+    @Data
+    public static class Remote {
+
+        // none or memory; with memory every cache fronts an in-process stand-in for a shared store.
+        private String store = "none";
+        private Duration ttl = Duration.ofMinutes(30);
+
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.oldvabik.warehousemanagement.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "inventory")
+public class InventoryProperties {
+
+    private Ledger ledger = new Ledger();
+
+    @Data
+    public static class Ledger {
+
+        // When enabled, stock is reserved in memory and written to the products table in batches.
+        // Single node only: it cannot be combined with cache.invalidation.transport=postgres.
+        private boolean enabled;
+        private String path = "inventory-ledger";
+        private Duration flushInterval = Duration.ofSeconds(1);
+        // fsync every log append; without it a machine crash can lose the last reservations.
+        private boolean sync = true;
+
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.oldvabik.warehousemanagement.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "order")
+public class OrderProperties {
+
+    private Retry retry = new Retry();
+    private Idempotency idempotency = new Idempotency();
+    private Intake intake = new Intake();
+    private GroupCommit groupCommit = new GroupCommit();
+
+    @Data
+    public static class Retry {
+
+        // Attempts in total, including the first one, for transactions lost to a deadlock or serialization failure.
+        private int maxAttempts = 5;
+        private Duration initialBackoff = Duration.ofMillis(20);
+        private Duration maxBackoff = Duration.ofMillis(500);
+
+    }
+
+    @Data
+    public static class Idempotency {
+
+        // Results kept for repeated Idempotency-Key requests; the oldest are dropped beyond the capacity.
+        private int capacity = 10000;
+        private Duration ttl = Duration.ofHours(24);
+        // How long a duplicate waits for the first attempt that is still running.
+        private Duration waitTimeout = Duration.ofSeconds(30);
+
+    }
+
+    @Data
+    public static class Intake {
+
+        // When enabled, new orders are queued and answered with 202; workers place them in batches.
+        private boolean enabled;
+        private int queueCapacity = 1000;
+        private int workers = 2;
+        private int batchSize = 20;
+        // Statuses kept for polling; the oldest are dropped beyond the capacity.
+        private int statusCapacity = 10000;
+
+    }
+
+    @Data
+    public static class GroupCommit {
+
+        // When enabled, orders placed synchronously within the window share one transaction.
+        private boolean enabled;
+        private Duration window = Duration.ofMillis(5);
+        private int maxOrders = 32;
+        // Orders waiting for a group; past this they are placed on their own.
+        private int queueCapacity = 1000;
+        // Groups committed in parallel while the next one gathers.
+        private int committers = 4;
+        // How long a caller waits for its group before giving up with 409 or 503.
+        private Duration waitTimeout = Duration.ofSeconds(10);
+
+    }
+
+}
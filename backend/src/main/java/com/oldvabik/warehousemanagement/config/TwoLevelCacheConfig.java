@@ -0,0 +1,66 @@
+package com.oldvabik.warehousemanagement.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.oldvabik.warehousemanagement.cache.CategoryCache;
+import com.oldvabik.warehousemanagement.cache.InMemoryRemoteStore;
+import com.oldvabik.warehousemanagement.cache.OrderCache;
+import com.oldvabik.warehousemanagement.cache.ProductCache;
+import com.oldvabik.warehousemanagement.cache.RemoteStore;
+import com.oldvabik.warehousemanagement.cache.TwoLevelCache;
+import com.oldvabik.warehousemanagement.cache.UserCache;
+import com.oldvabik.warehousemanagement.model.CategorySnapshot;
+import com.oldvabik.warehousemanagement.model.OrderSnapshot;
+import com.oldvabik.warehousemanagement.model.ProductSnapshot;
+import com.oldvabik.warehousemanagement.model.UserSnapshot;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+// Puts each entity cache in front of the remote store; the services then get the two-level caches.
+@Configuration
+@ConditionalOnProperty(name = "cache.remote.store", havingValue = "memory")
+public class TwoLevelCacheConfig {
+
+    @Bean
+    public RemoteStore inMemoryRemoteStore() {
+        return new InMemoryRemoteStore();
+    }
+
+    @Bean
+    @Primary
+    public TwoLevelCache<CategorySnapshot> twoLevelCategoryCache(CategoryCache local, RemoteStore remote,
+                                                                 ObjectMapper objectMapper,
+                                                                 CacheProperties properties) {
+        return new TwoLevelCache<>(local, remote, objectMapper, CategorySnapshot.class,
+                properties.getRemote().getTtl());
+    }
+
+    @Bean
+    @Primary
+    public TwoLevelCache<ProductSnapshot> twoLevelProductCache(ProductCache local, RemoteStore remote,
+                                                               ObjectMapper objectMapper,
+                                                               CacheProperties properties) {
+        return new TwoLevelCache<>(local, remote, objectMapper, ProductSnapshot.class,
+                properties.getRemote().getTtl());
+    }
+
+    @Bean
+    @Primary
+    public TwoLevelCache<UserSnapshot> twoLevelUserCache(UserCache local, RemoteStore remote,
+                                                         ObjectMapper objectMapper,
+                                                         CacheProperties properties) {
+        return new TwoLevelCache<>(local, remote, objectMapper, UserSnapshot.class,
+                properties.getRemote().getTtl());
+    }
+
+    @Bean
+    @Primary
+    public TwoLevelCache<OrderSnapshot> twoLevelOrderCache(OrderCache local, RemoteStore remote,
+                                                           ObjectMapper objectMapper,
+                                                           CacheProperties properties) {
+        return new TwoLevelCache<>(local, remote, objectMapper, OrderSnapshot.class,
+                properties.getRemote().getTtl());
+    }
+
+}
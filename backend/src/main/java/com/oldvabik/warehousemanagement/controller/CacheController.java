@@ -0,0 +1,74 @@
+package com.oldvabik.warehousemanagement.controller;
+
+import com.oldvabik.warehousemanagement.cache.CacheStats;
+import com.oldvabik.warehousemanagement.dto.CacheSizeDto;
+import com.oldvabik.warehousemanagement.model.CacheStatus;
+import com.oldvabik.warehousemanagement.service.CacheService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import java.util.List;
+import java.util.Map;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/caches")
+@Tag(name = "Cache API", description = "Inspect and resize the entity caches")
+public class CacheController {
+
+    private final CacheService cacheService;
+
+    public CacheController(CacheService cacheService) {
+        this.cacheService = cacheService;
+    }
+
+    @GetMapping
+    @Operation(summary = "Get all caches", description = "Returns the bounds and current size of every cache")
+    public List<CacheStatus> getCaches() {
+        return cacheService.getCaches();
+    }
+
+    @GetMapping("/stats")
+    @Operation(summary = "Get cache statistics", description = "Returns hit, miss, eviction and load counters per cache")
+    public ResponseEntity<Map<String, CacheStats>> getStats() {
+        return ResponseEntity.ok(cacheService.getStats());
+    }
+
+    @GetMapping("/{name}/stats")
+    @Operation(summary = "Get statistics of a cache", description = "Returns hit, miss, eviction and load counters")
+    public CacheStats getCacheStats(@PathVariable String name) {
+        return cacheService.getCacheStats(name);
+    }
+
+    @DeleteMapping("/{name}/stats")
+    @Operation(summary = "Reset statistics of a cache", description = "Sets every counter of a cache back to zero")
+    public void resetCacheStats(@PathVariable String name) {
+        cacheService.resetCacheStats(name);
+    }
+
+    @GetMapping("/{name}")
+    @Operation(summary = "Get cache by name", description = "Returns the bounds and current size of a cache")
+    public CacheStatus getCache(@PathVariable String name) {
+        return cacheService.getCache(name);
+    }
+
+    @PutMapping("/{name}")
+    @Operation(summary = "Resize a cache", description = "Changes the capacity and weight bound, evicting if needed")
+    public CacheStatus resizeCache(@PathVariable String name, @Valid @RequestBody CacheSizeDto cacheSizeDto) {
+        return cacheService.resizeCache(name, cacheSizeDto);
+    }
+
+    @DeleteMapping("/{name}")
+    @Operation(summary = "Clear a cache", description = "Removes every entry from a cache")
+    public void clearCache(@PathVariable String name) {
+        cacheService.clearCache(name);
+    }
+
+}
@@ -2,7 +2,9 @@ package com.oldvabik.warehousemanagement.controller;
 
 import com.oldvabik.warehousemanagement.dto.CategoryDto;
 import com.oldvabik.warehousemanagement.model.Category;
+import com.oldvabik.warehousemanagement.model.CategorySnapshot;
 import com.oldvabik.warehousemanagement.model.Product;
+import com.oldvabik.warehousemanagement.model.ProductSnapshot;
 import com.oldvabik.warehousemanagement.service.CategoryService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -42,13 +44,13 @@ public class CategoryController {
 
     @GetMapping
     @Operation(summary = "Get all categories", description = "Returns a list of all categories")
-    public List<Category> getCategories() {
+    public List<CategorySnapshot> getCategories() {
         return categoryService.getCategories();
     }
 
     @GetMapping("/{id}")
     @Operation(summary = "Get category by ID", description = "Returns a category by its unique identifier")
-    public Category getCategoryById(@PathVariable Long id) {
+    public CategorySnapshot getCategoryById(@PathVariable Long id) {
         return categoryService.getCategoryById(id);
     }
 
@@ -69,7 +71,7 @@ public class CategoryController {
             summary = "Get products by category",
             description = "Returns a list of products belonging to a specific category"
     )
-    public List<Product> getProductsByCategory(@PathVariable Long categoryId) {
+    public List<ProductSnapshot> getProductsByCategory(@PathVariable Long categoryId) {
         return categoryService.getProductsByCategory(categoryId);
     }
 
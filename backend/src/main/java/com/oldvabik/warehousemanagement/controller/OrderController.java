@@ -2,58 +2,101 @@ package com.oldvabik.warehousemanagement.controller;
 
 import com.oldvabik.warehousemanagement.dto.OrderDto;
 import com.oldvabik.warehousemanagement.model.Order;
+import com.oldvabik.warehousemanagement.model.OrderIntakeStatus;
+import com.oldvabik.warehousemanagement.model.OrderSnapshot;
+import com.oldvabik.warehousemanagement.service.IdempotencyService;
+import com.oldvabik.warehousemanagement.service.OrderGroupCommitter;
+import com.oldvabik.warehousemanagement.service.OrderIntakeService;
 import com.oldvabik.warehousemanagement.service.OrderService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.net.URI;
 import java.util.List;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
 @RestController
 @RequestMapping("/api")
 @Tag(name = "Order API", description = "Manage orders")
 public class OrderController {
 
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     private final OrderService orderService;
+    private final IdempotencyService idempotencyService;
+    private final OrderIntakeService orderIntakeService;
+    private final OrderGroupCommitter orderGroupCommitter;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService,
+                           IdempotencyService idempotencyService,
+                           OrderIntakeService orderIntakeService,
+                           OrderGroupCommitter orderGroupCommitter) {
         this.orderService = orderService;
+        this.idempotencyService = idempotencyService;
+        this.orderIntakeService = orderIntakeService;
+        this.orderGroupCommitter = orderGroupCommitter;
     }
 
     @PostMapping("/users/{userId}/orders")
-    @Operation(summary = "Create an order", description = "Creates a new order for a specific user")
-    public Order createOrder(@PathVariable Long userId, @Valid @RequestBody OrderDto orderDto) {
-        return orderService.createOrder(userId, orderDto);
+    @Operation(summary = "Create an order", description = "Creates a new order for a specific user. "
+            + "With order intake enabled the order is queued and 202 is returned with a status URL")
+    public ResponseEntity<Object> createOrder(@PathVariable Long userId,
+                                              @Valid @RequestBody OrderDto orderDto,
+                                              @RequestHeader(value = IDEMPOTENCY_KEY, required = false)
+                                              String idempotencyKey) {
+        String scope = "POST /users/" + userId + "/orders";
+        if (orderIntakeService.isEnabled()) {
+            OrderIntakeStatus status = idempotencyService.execute(scope, idempotencyKey, orderDto,
+                    () -> orderIntakeService.submit(userId, orderDto).orElseThrow(() -> new ResponseStatusException(
+                            HttpStatus.SERVICE_UNAVAILABLE, "Too many orders in the queue, retry later")));
+            return ResponseEntity.accepted().location(URI.create("/api/orders/intake/" + status.ticket())).body(status);
+        }
+        if (orderGroupCommitter.isEnabled()) {
+            return ResponseEntity.ok(idempotencyService.execute(scope, idempotencyKey, orderDto,
+                    () -> orderGroupCommitter.createOrder(userId, orderDto)));
+        }
+        return ResponseEntity.ok(idempotencyService.execute(scope, idempotencyKey, orderDto,
+                () -> orderService.createOrder(userId, orderDto)));
+    }
+
+    @GetMapping("/orders/intake/{ticket}")
+    @Operation(summary = "Get queued order status", description = "Retrieves the status of an order queued for placement")
+    public OrderIntakeStatus getIntakeStatus(@PathVariable String ticket) {
+        return orderIntakeService.getStatus(ticket);
     }
 
     @GetMapping("/orders")
     @Operation(summary = "Get all orders", description = "Retrieves a list of all orders")
-    public List<Order> getAllOrders() {
+    public List<OrderSnapshot> getAllOrders() {
         return orderService.getAllOrders();
     }
 
     @GetMapping("/orders/{id}")
     @Operation(summary = "Get order by ID", description = "Retrieves an order by its unique identifier")
-    public Order getOrderById(@PathVariable Long id) {
+    public OrderSnapshot getOrderById(@PathVariable Long id) {
         return orderService.getOrderById(id);
     }
 
     @GetMapping("/users/{userId}/orders")
     @Operation(summary = "Get user orders", description = "Retrieves a list of orders for a specific user")
-    public List<Order> getUserOrders(@PathVariable Long userId) {
+    public List<OrderSnapshot> getUserOrders(@PathVariable Long userId) {
         return orderService.getUserOrders(userId);
     }
 
     @GetMapping("/users/{userId}/orders/{orderId}")
     @Operation(summary = "Get user order by ID", description = "Retrieves a specific order of a user by order ID")
-    public Order getUserOrderById(@PathVariable Long userId, @PathVariable Long orderId) {
+    public OrderSnapshot getUserOrderById(@PathVariable Long userId, @PathVariable Long orderId) {
         return orderService.getUserOrderById(userId, orderId);
     }
 
@@ -61,8 +104,11 @@ public class OrderController {
     @Operation(summary = "Update an order", description = "Updates an order's details for a specific user")
     public Order updateOrder(@PathVariable Long userId,
                                              @PathVariable Long orderId,
-                                             @Valid @RequestBody OrderDto orderDto) {
-        return orderService.updateOrder(userId, orderId, orderDto);
+                                             @Valid @RequestBody OrderDto orderDto,
+                                             @RequestHeader(value = IDEMPOTENCY_KEY, required = false)
+                                             String idempotencyKey) {
+        return idempotencyService.execute("PUT /users/" + userId + "/orders/" + orderId, idempotencyKey, orderDto,
+                () -> orderService.updateOrder(userId, orderId, orderDto));
     }
 
     @DeleteMapping("/users/{userId}/orders/{orderId}")
@@ -2,6 +2,7 @@ package com.oldvabik.warehousemanagement.controller;
 
 import com.oldvabik.warehousemanagement.dto.ProductDto;
 import com.oldvabik.warehousemanagement.model.Product;
+import com.oldvabik.warehousemanagement.model.ProductSnapshot;
 import com.oldvabik.warehousemanagement.service.ProductService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -41,13 +42,13 @@ public class ProductController {
 
     @GetMapping
     @Operation(summary = "Get all products", description = "Retrieves a list of all products")
-    public List<Product> getProducts() {
+    public List<ProductSnapshot> getProducts() {
         return productService.getProducts();
     }
 
     @GetMapping("/{id}")
     @Operation(summary = "Get product by ID", description = "Retrieves a product by its unique identifier")
-    public Product getProduct(@PathVariable Long id) {
+    public ProductSnapshot getProduct(@PathVariable Long id) {
         return productService.getProduct(id);
     }
 
@@ -2,6 +2,7 @@ package com.oldvabik.warehousemanagement.controller;
 
 import com.oldvabik.warehousemanagement.dto.UserDto;
 import com.oldvabik.warehousemanagement.model.User;
+import com.oldvabik.warehousemanagement.model.UserSnapshot;
 import com.oldvabik.warehousemanagement.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -35,13 +36,13 @@ public class UserController {
 
     @GetMapping
     @Operation(summary = "Get all users", description = "Returns a list of all users")
-    public List<User> getUsers() {
+    public List<UserSnapshot> getUsers() {
         return userService.getUsers();
     }
 
     @GetMapping("/{id}")
     @Operation(summary = "Get user by ID", description = "Returns a user by their unique identifier")
-    public User getUserById(@PathVariable Long id) {
+    public UserSnapshot getUserById(@PathVariable Long id) {
         return userService.getUserById(id);
     }
 
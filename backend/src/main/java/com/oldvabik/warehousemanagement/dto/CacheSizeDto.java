@@ -0,0 +1,14 @@
+package com.oldvabik.warehousemanagement.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class CacheSizeDto {
+    @NotNull
+    @Min(0)
+    private Integer capacity;
+    @Min(0)
+    private Long maxWeight;
+}
@@ -0,0 +1,25 @@
+package com.oldvabik.warehousemanagement.exception;
+
+import java.util.concurrent.CompletableFuture;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class RequestInProgressException extends RuntimeException {
+
+    // The still running operation's result, if the thrower knows it; null otherwise.
+    private final transient CompletableFuture<?> outcome;
+
+    public RequestInProgressException(String message) {
+        this(message, null);
+    }
+
+    public RequestInProgressException(String message, CompletableFuture<?> outcome) {
+        super(message);
+        this.outcome = outcome;
+    }
+
+    public CompletableFuture<?> getOutcome() {
+        return outcome;
+    }
+}
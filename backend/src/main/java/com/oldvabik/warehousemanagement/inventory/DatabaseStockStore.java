@@ -0,0 +1,39 @@
+package com.oldvabik.warehousemanagement.inventory;
+
+import com.oldvabik.warehousemanagement.model.Product;
+import com.oldvabik.warehousemanagement.repository.ProductRepository;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+// Changes the stock directly in the products table with conditional updates.
+@Component
+@ConditionalOnProperty(name = "inventory.ledger.enabled", havingValue = "false", matchIfMissing = true)
+public class DatabaseStockStore implements StockStore {
+
+    private final ProductRepository productRepository;
+
+    public DatabaseStockStore(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    @Override
+    public List<Product> moveStock(Map<Product, Integer> taken, Map<Product, Integer> returned) {
+        List<Product> outOfStock = productRepository.moveStock(taken, returned);
+        if (!outOfStock.isEmpty()) {
+            // Undo the rows that did change; this transaction still holds their locks, so it cannot fail.
+            Map<Product, Integer> applied = new LinkedHashMap<>(taken);
+            outOfStock.forEach(applied::remove);
+            productRepository.moveStock(returned, applied);
+        }
+        return outOfStock;
+    }
+
+    @Override
+    public void setQuantity(Product product, int quantity) {
+        productRepository.setQuantity(product, quantity);
+    }
+
+}
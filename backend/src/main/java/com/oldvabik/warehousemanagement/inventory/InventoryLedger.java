@@ -0,0 +1,380 @@
+package com.oldvabik.warehousemanagement.inventory;
+
+import com.oldvabik.warehousemanagement.cache.CacheInvalidator;
+import com.oldvabik.warehousemanagement.cache.EntityRef;
+import com.oldvabik.warehousemanagement.config.CacheProperties;
+import com.oldvabik.warehousemanagement.config.InventoryProperties;
+import com.oldvabik.warehousemanagement.model.InventoryCheckpoint;
+import com.oldvabik.warehousemanagement.model.Product;
+import com.oldvabik.warehousemanagement.repository.InventoryCheckpointRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Keeps the authoritative available stock in memory, one atomic counter per product, so orders for
+ * the same hot product are confirmed with a compare-and-set instead of queueing on its row lock.
+ *
+ * <p>Every change is appended to a {@link ReservationLog} before it is confirmed; concurrent
+ * changes share one fsync. A scheduled flush
+ * writes the current counters of the changed products to the table in one batch, together with
+ * the last log sequence number it covers, and then drops the flushed log segments. After a crash
+ * the records past that checkpoint are replayed on top of the table before any order is served.
+ *
+ * <p>Reservations share a read lock, so they run in parallel; the lock only keeps the counters
+ * and the log consistent with each other while a flush takes its snapshot or the stock of a
+ * product is set by hand. Stock is taken at once but given back only after the returning
+ * transaction commits, so releasing the stock taken by a rolled-back transaction only ever adds it
+ * back and no counter is ever decremented without a check. If the process dies before the release,
+ * or between a commit and its return, the stock stays taken after recovery: a crash can undersell,
+ * never oversell. Each flush evicts the cached products it wrote, so stock shown
+ * by product reads lags by up to one flush interval.
+ *
+ * <p>The counters are authoritative only within this process, so the ledger is single-node: it
+ * refuses to start when caches are shared between nodes through the postgres transport, since
+ * every node would then sell the same stock and overwrite the others' flushes.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "inventory.ledger.enabled", havingValue = "true")
+public class InventoryLedger implements StockStore {
+
+    private static final int CHECKPOINT_ID = 1;
+    private static final String READ_QUANTITY = "SELECT quantity FROM products WHERE id = ?";
+    private static final String WRITE_QUANTITY = "UPDATE products SET quantity = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final InventoryCheckpointRepository checkpointRepository;
+    private final EntityManager entityManager;
+    private final ReservationLog reservationLog;
+    private final CacheInvalidator cacheInvalidator;
+
+    private final Map<Long, AtomicInteger> counters = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public InventoryLedger(JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           InventoryCheckpointRepository checkpointRepository,
+                           EntityManager entityManager,
+                           CacheInvalidator cacheInvalidator,
+                           InventoryProperties inventoryProperties,
+                           CacheProperties cacheProperties) throws IOException {
+        if ("postgres".equals(cacheProperties.getInvalidation().getTransport())) {
+            throw new IllegalStateException("The inventory ledger keeps stock in this process only and cannot run "
+                    + "with cache.invalidation.transport=postgres; disable inventory.ledger.enabled on multiple nodes");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.checkpointRepository = checkpointRepository;
+        this.entityManager = entityManager;
+        this.cacheInvalidator = cacheInvalidator;
+        InventoryProperties.Ledger ledger = inventoryProperties.getLedger();
+        this.reservationLog = new ReservationLog(Path.of(ledger.getPath()), ledger.isSync());
+    }
+
+    // Replays what the last run logged but did not flush, then starts a fresh log segment.
+    @PostConstruct
+    public void recover() throws IOException {
+        long checkpoint = checkpointRepository.findById(CHECKPOINT_ID).map(InventoryCheckpoint::getLastSeq).orElse(0L);
+        Map<Long, Integer> values = new TreeMap<>();
+        long last = checkpoint;
+        for (LedgerRecord record : reservationLog.readAll()) {
+            if (record.seq() <= checkpoint) {
+                continue;
+            }
+            record.values().forEach((id, value) -> {
+                if (record.absolute()) {
+                    values.put(id, value);
+                } else {
+                    values.put(id, values.computeIfAbsent(id, this::readQuantity) + value);
+                }
+            });
+            last = record.seq();
+        }
+        if (!values.isEmpty()) {
+            write(values, last);
+            log.info("Replayed the inventory ledger up to {} for {} products", last, values.size());
+        }
+        sequence.set(last);
+        reservationLog.rotate(last + 1);
+        reservationLog.deleteOldSegments();
+    }
+
+    @Override
+    public List<Product> moveStock(Map<Product, Integer> taken, Map<Product, Integer> returned) {
+        List<Product> outOfStock = take(taken);
+        if (!outOfStock.isEmpty()) {
+            return outOfStock;
+        }
+        taken.keySet().forEach(this::showQuantity);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            give(returned);
+            returned.keySet().forEach(this::showQuantity);
+            return List.of();
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    give(returned);
+                    returned.keySet().forEach(product -> showQuantity(product));
+                } catch (RuntimeException e) {
+                    log.error("Could not return the stock of a committed transaction: {}", returned, e);
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    give(taken);
+                }
+            }
+        });
+        return List.of();
+    }
+
+    @Override
+    public void setQuantity(Product product, int quantity) {
+        lock.writeLock().lock();
+        try {
+            counter(product.getId()).set(quantity);
+            append(new LedgerRecord(sequence.incrementAndGet(), true, Map.of(product.getId(), quantity)));
+            dirty.add(product.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+        product.setQuantity(quantity);
+    }
+
+    /**
+     * Writes the counters changed since the last flush to the products table, with the checkpoint,
+     * in one transaction, then evicts the cached copies of those products. On failure the products stay dirty and the log segments are kept, so the
+     * next flush covers them again.
+     */
+    @Scheduled(initialDelayString = "${inventory.ledger.flush-interval:1s}",
+            fixedDelayString = "${inventory.ledger.flush-interval:1s}")
+    public void flush() {
+        if (!flushLock.tryLock()) {
+            return;
+        }
+        try {
+            Map<Long, Integer> values = new TreeMap<>();
+            long last;
+            lock.writeLock().lock();
+            try {
+                if (dirty.isEmpty()) {
+                    return;
+                }
+                last = sequence.get();
+                for (Long id : dirty) {
+                    AtomicInteger counter = counters.get(id);
+                    if (counter != null) {
+                        values.put(id, counter.get());
+                    }
+                }
+                dirty.clear();
+                reservationLog.rotate(last + 1);
+            } catch (IOException e) {
+                dirty.addAll(values.keySet());
+                throw new UncheckedIOException(e);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            try {
+                write(values, last);
+                reservationLog.deleteOldSegments();
+                log.debug("Flushed the stock of {} products up to {}", values.size(), last);
+            } catch (RuntimeException | IOException e) {
+                dirty.addAll(values.keySet());
+                log.warn("Inventory flush failed, will retry: {}", e.getMessage());
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        flush();
+        reservationLog.close();
+    }
+
+    /**
+     * Takes the quantities in product id order, never letting a counter go below zero. If any
+     * product is short, the stock already taken is added back and the short products are returned,
+     * leaving the log untouched.
+     */
+    private List<Product> take(Map<Product, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return List.of();
+        }
+        List<Map.Entry<Product, Integer>> items = new ArrayList<>(quantities.entrySet());
+        items.sort(Comparator.comparing(item -> item.getKey().getId()));
+        Map<Long, Integer> taken = new LinkedHashMap<>();
+        List<Product> outOfStock = new ArrayList<>();
+        long position;
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<Product, Integer> item : items) {
+                if (tryAdd(counter(item.getKey().getId()), -item.getValue())) {
+                    taken.put(item.getKey().getId(), -item.getValue());
+                } else {
+                    outOfStock.add(item.getKey());
+                }
+            }
+            if (!outOfStock.isEmpty()) {
+                taken.forEach((id, delta) -> counters.get(id).addAndGet(-delta));
+                return outOfStock;
+            }
+            try {
+                position = write(new LedgerRecord(sequence.incrementAndGet(), false, taken));
+            } catch (RuntimeException e) {
+                taken.forEach((id, delta) -> counters.get(id).addAndGet(-delta));
+                throw e;
+            }
+            dirty.addAll(taken.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+        try {
+            awaitDurable(position);
+        } catch (RuntimeException e) {
+            // Adding back is always safe; if the record did reach the disk, a replay only undersells.
+            taken.forEach((id, delta) -> counters.get(id).addAndGet(-delta));
+            throw e;
+        }
+        return List.of();
+    }
+
+    // Adds the quantities back; logged first, so a failed append leaves the counters untouched.
+    private void give(Map<Product, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> given = new TreeMap<>();
+        quantities.forEach((product, quantity) -> given.put(product.getId(), quantity));
+        long position;
+        lock.readLock().lock();
+        try {
+            position = write(new LedgerRecord(sequence.incrementAndGet(), false, given));
+            given.forEach((id, quantity) -> counter(id).addAndGet(quantity));
+            dirty.addAll(given.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+        awaitDurable(position);
+    }
+
+    private static boolean tryAdd(AtomicInteger counter, int delta) {
+        while (true) {
+            int current = counter.get();
+            int next = current + delta;
+            if (next < 0) {
+                return false;
+            }
+            if (counter.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    // Reads the table outside the map, so a slow query never blocks other products' counters.
+    private AtomicInteger counter(long productId) {
+        AtomicInteger counter = counters.get(productId);
+        if (counter != null) {
+            return counter;
+        }
+        AtomicInteger loaded = new AtomicInteger(readQuantity(productId));
+        AtomicInteger raced = counters.putIfAbsent(productId, loaded);
+        return raced != null ? raced : loaded;
+    }
+
+    private int readQuantity(long productId) {
+        try {
+            Integer quantity = jdbcTemplate.queryForObject(READ_QUANTITY, Integer.class, productId);
+            return quantity == null ? 0 : quantity;
+        } catch (EmptyResultDataAccessException e) {
+            return 0;
+        }
+    }
+
+    private void append(LedgerRecord record) {
+        awaitDurable(write(record));
+    }
+
+    private long write(LedgerRecord record) {
+        try {
+            return reservationLog.write(record);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the inventory ledger", e);
+        }
+    }
+
+    // take and give wait outside the lock, so a flush never queues behind an fsync.
+    private void awaitDurable(long position) {
+        try {
+            reservationLog.awaitDurable(position);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not sync the inventory ledger", e);
+        }
+    }
+
+    private void write(Map<Long, Integer> values, long last) {
+        List<Object[]> rows = new ArrayList<>(values.size());
+        values.forEach((id, quantity) -> rows.add(new Object[] {quantity, id}));
+        transactionTemplate.executeWithoutResult(status -> {
+            int[] counts = jdbcTemplate.batchUpdate(WRITE_QUANTITY, rows);
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) {
+                    // The product was deleted; forget its counter.
+                    counters.remove((Long) rows.get(i)[1]);
+                }
+            }
+            checkpointRepository.save(new InventoryCheckpoint(CHECKPOINT_ID, last));
+        });
+        // Reads since the orders committed may have cached the quantities the table held before.
+        values.keySet().forEach(id -> cacheInvalidator.invalidate(EntityRef.product(id)));
+    }
+
+    // Shows the ledger's stock on a loaded entity without letting Hibernate write it back.
+    private void showQuantity(Product product) {
+        if (entityManager.contains(product)) {
+            entityManager.unwrap(Session.class).setReadOnly(product, true);
+        }
+        AtomicInteger counter = counters.get(product.getId());
+        if (counter != null) {
+            product.setQuantity(counter.get());
+        }
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.oldvabik.warehousemanagement.inventory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One line of the reservation log: {@code <seq> R <id>:<delta> ...} for stock taken (negative) or
+ * returned (positive), or {@code <seq> S <id>:<quantity>} for stock set to an absolute value.
+ */
+record LedgerRecord(long seq, boolean absolute, Map<Long, Integer> values) {
+
+    LedgerRecord {
+        values = Map.copyOf(values);
+    }
+
+    String format() {
+        StringBuilder line = new StringBuilder().append(seq).append(absolute ? " S" : " R");
+        values.forEach((id, value) -> line.append(' ').append(id).append(':').append(value));
+        return line.toString();
+    }
+
+    // Throws IllegalArgumentException if the line is malformed.
+    static LedgerRecord parse(String line) {
+        String[] parts = line.trim().split(" ");
+        if (parts.length < 3 || !(parts[1].equals("R") || parts[1].equals("S"))) {
+            throw new IllegalArgumentException("Malformed ledger line: " + line);
+        }
+        try {
+            Map<Long, Integer> values = new LinkedHashMap<>();
+            for (int i = 2; i < parts.length; i++) {
+                int colon = parts[i].indexOf(':');
+                values.put(Long.parseLong(parts[i].substring(0, colon)), Integer.parseInt(parts[i].substring(colon + 1)));
+            }
+            return new LedgerRecord(Long.parseLong(parts[0]), parts[1].equals("S"), values);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed ledger line: " + line, e);
+        }
+    }
+
+}
@@ -0,0 +1,159 @@
+package com.oldvabik.warehousemanagement.inventory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Append-only log of ledger changes, split into segments named after their first sequence number.
+ * A flush rotates to a new segment; once the flushed values are committed, every older segment can
+ * be deleted. A line torn by a crash mid-write has no newline and is ignored when reading back.
+ *
+ * <p>With sync enabled, fsync is group-committed: {@link #write} only appends a record to the file
+ * and returns its position, and {@link #awaitDurable} waits until that position is on disk. One
+ * waiter at a time forces the file, covering every record written so far, so appenders arriving
+ * during an fsync share the next one instead of each paying for their own.
+ */
+class ReservationLog implements Closeable {
+
+    private static final String PREFIX = "ledger-";
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+    private final boolean sync;
+    private final ReentrantLock forceLock = new ReentrantLock();
+    private FileChannel current;
+    private Path currentPath;
+    private long written;
+    private volatile long durable;
+
+    ReservationLog(Path directory, boolean sync) throws IOException {
+        this.directory = directory;
+        this.sync = sync;
+        Files.createDirectories(directory);
+    }
+
+    // Every record of every segment, in sequence order.
+    List<LedgerRecord> readAll() throws IOException {
+        List<LedgerRecord> records = new ArrayList<>();
+        for (Path segment : segments()) {
+            String content = Files.readString(segment, StandardCharsets.UTF_8);
+            int end = content.lastIndexOf('\n');
+            if (end < 0) {
+                continue;
+            }
+            for (String line : content.substring(0, end).split("\n")) {
+                if (!line.isBlank()) {
+                    records.add(LedgerRecord.parse(line));
+                }
+            }
+        }
+        records.sort(Comparator.comparingLong(LedgerRecord::seq));
+        return records;
+    }
+
+    void append(LedgerRecord record) throws IOException {
+        awaitDurable(write(record));
+    }
+
+    // Appends the record without waiting for the disk and returns its position for awaitDurable.
+    synchronized long write(LedgerRecord record) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap((record.format() + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            current.write(buffer);
+        }
+        return ++written;
+    }
+
+    // Returns once the record at the position is on disk, forcing the file if no one else is.
+    void awaitDurable(long position) throws IOException {
+        if (!sync || durable >= position) {
+            return;
+        }
+        forceLock.lock();
+        try {
+            if (durable >= position) {
+                return;
+            }
+            FileChannel channel;
+            long target;
+            synchronized (this) {
+                channel = current;
+                target = written;
+            }
+            channel.force(false);
+            durable = target;
+        } finally {
+            forceLock.unlock();
+        }
+    }
+
+    // Starts a new segment for records from firstSeq on, after forcing the one it replaces.
+    void rotate(long firstSeq) throws IOException {
+        forceLock.lock();
+        try {
+            synchronized (this) {
+                closeCurrent();
+                currentPath = directory.resolve(String.format("%s%020d%s", PREFIX, firstSeq, SUFFIX));
+                current = FileChannel.open(currentPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND);
+            }
+        } finally {
+            forceLock.unlock();
+        }
+    }
+
+    // Deletes every segment but the current one; call only once their records are in the database.
+    synchronized void deleteOldSegments() throws IOException {
+        for (Path segment : segments()) {
+            if (!segment.equals(currentPath)) {
+                Files.deleteIfExists(segment);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        forceLock.lock();
+        try {
+            synchronized (this) {
+                closeCurrent();
+                current = null;
+            }
+        } finally {
+            forceLock.unlock();
+        }
+    }
+
+    // Called holding both locks, so no waiter is forcing the channel being closed.
+    private void closeCurrent() throws IOException {
+        if (current == null) {
+            return;
+        }
+        if (sync) {
+            current.force(false);
+        }
+        durable = written;
+        current.close();
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                String name = file.getFileName().toString();
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+            }).sorted().toList();
+        }
+    }
+
+}
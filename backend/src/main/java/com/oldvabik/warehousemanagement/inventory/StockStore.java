@@ -0,0 +1,23 @@
+package com.oldvabik.warehousemanagement.inventory;
+
+import com.oldvabik.warehousemanagement.model.Product;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Where available stock is kept and changed. By default that is the {@code products} table
+ * itself; with {@code inventory.ledger.enabled=true} it is the in-memory {@link InventoryLedger},
+ * which writes the table behind.
+ */
+public interface StockStore {
+
+    /**
+     * Takes the {@code taken} quantities and adds the {@code returned} ones back, all or nothing:
+     * if any product is short, nothing is changed and the short products are returned.
+     */
+    List<Product> moveStock(Map<Product, Integer> taken, Map<Product, Integer> returned);
+
+    // Replaces the stock of a product, as when it is edited by hand.
+    void setQuantity(Product product, int quantity);
+
+}
@@ -2,6 +2,7 @@ package com.oldvabik.warehousemanagement.mapper;
 
 import com.oldvabik.warehousemanagement.dto.CategoryDto;
 import com.oldvabik.warehousemanagement.model.Category;
+import com.oldvabik.warehousemanagement.model.CategorySnapshot;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -19,4 +20,8 @@ public class CategoryMapper {
         return category;
     }
 
+    public CategorySnapshot toSnapshot(Category category) {
+        return new CategorySnapshot(category.getId(), category.getName());
+    }
+
 }
@@ -0,0 +1,45 @@
+package com.oldvabik.warehousemanagement.mapper;
+
+import com.oldvabik.warehousemanagement.model.Order;
+import com.oldvabik.warehousemanagement.model.OrderProduct;
+import com.oldvabik.warehousemanagement.model.OrderProductSnapshot;
+import com.oldvabik.warehousemanagement.model.OrderSnapshot;
+import java.util.Comparator;
+import java.util.List;
+import org.springframework.stereotype.Component;
+
+@Component
+public class OrderMapper {
+
+    private final UserMapper userMapper;
+    private final ProductMapper productMapper;
+
+    public OrderMapper(UserMapper userMapper, ProductMapper productMapper) {
+        this.userMapper = userMapper;
+        this.productMapper = productMapper;
+    }
+
+    // Expects the user and the lines with their products to be loaded already.
+    public OrderSnapshot toSnapshot(Order order) {
+        List<OrderProductSnapshot> lines = order.getOrderProducts() == null ? List.of()
+                : order.getOrderProducts().stream()
+                        .map(this::toSnapshot)
+                        .sorted(Comparator.comparing(line -> line.id().productId()))
+                        .toList();
+        return new OrderSnapshot(
+                order.getId(),
+                order.getDate(),
+                order.getTotalPrice(),
+                order.getUser() == null ? null : userMapper.toSnapshot(order.getUser()),
+                lines
+        );
+    }
+
+    private OrderProductSnapshot toSnapshot(OrderProduct orderProduct) {
+        OrderProductSnapshot.Key key = new OrderProductSnapshot.Key(
+                orderProduct.getId().getOrderId(), orderProduct.getId().getProductId());
+        return new OrderProductSnapshot(
+                key, productMapper.toSnapshot(orderProduct.getProduct()), orderProduct.getQuantity());
+    }
+
+}
@@ -3,11 +3,18 @@ package com.oldvabik.warehousemanagement.mapper;
 import com.oldvabik.warehousemanagement.dto.ProductDto;
 import com.oldvabik.warehousemanagement.model.Category;
 import com.oldvabik.warehousemanagement.model.Product;
+import com.oldvabik.warehousemanagement.model.ProductSnapshot;
 import org.springframework.stereotype.Component;
 
 @Component
 public class ProductMapper {
 
+    private final CategoryMapper categoryMapper;
+
+    public ProductMapper(CategoryMapper categoryMapper) {
+        this.categoryMapper = categoryMapper;
+    }
+
     public ProductDto toDto(Product product) {
         ProductDto productDto = new ProductDto();
         productDto.setName(product.getName());
@@ -28,4 +35,14 @@ public class ProductMapper {
         return product;
     }
 
+    public ProductSnapshot toSnapshot(Product product) {
+        return new ProductSnapshot(
+                product.getId(),
+                product.getName(),
+                product.getPrice(),
+                product.getQuantity(),
+                product.getCategory() == null ? null : categoryMapper.toSnapshot(product.getCategory())
+        );
+    }
+
 }
@@ -2,6 +2,7 @@ package com.oldvabik.warehousemanagement.mapper;
 
 import com.oldvabik.warehousemanagement.dto.UserDto;
 import com.oldvabik.warehousemanagement.model.User;
+import com.oldvabik.warehousemanagement.model.UserSnapshot;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -25,4 +26,8 @@ public class UserMapper {
         return user;
     }
 
+    public UserSnapshot toSnapshot(User user) {
+        return new UserSnapshot(user.getId(), user.getFirstName(), user.getLastName(), user.getEmail(), user.getAge());
+    }
+
 }
@@ -0,0 +1,16 @@
+package com.oldvabik.warehousemanagement.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class CacheStatus {
+
+    private String name;
+    private int capacity;
+    private long maxWeight;
+    private int size;
+    private long weight;
+
+}
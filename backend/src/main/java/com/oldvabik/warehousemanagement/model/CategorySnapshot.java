@@ -0,0 +1,7 @@
+package com.oldvabik.warehousemanagement.model;
+
+/**
+ * Immutable copy of a {@link Category} as held by the caches and served by the read endpoints.
+ */
+public record CategorySnapshot(Long id, String name) {
+}
@@ -0,0 +1,16 @@
+package com.oldvabik.warehousemanagement.model;
+
+// Where a queued order stands: the order id once it is placed, or why it was rejected.
+public record OrderIntakeStatus(String ticket, State state, Long orderId, String error) {
+
+    public enum State {
+        QUEUED,
+        PLACED,
+        REJECTED
+    }
+
+    public static OrderIntakeStatus queued(String ticket) {
+        return new OrderIntakeStatus(ticket, State.QUEUED, null, null);
+    }
+
+}
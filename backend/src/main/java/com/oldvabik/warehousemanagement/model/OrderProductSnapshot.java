@@ -0,0 +1,11 @@
+package com.oldvabik.warehousemanagement.model;
+
+/**
+ * Immutable copy of an {@link OrderProduct} line; serializes like the entity, minus the back reference.
+ */
+public record OrderProductSnapshot(Key id, ProductSnapshot product, Integer quantity) {
+
+    public record Key(Long orderId, Long productId) {
+    }
+
+}
@@ -0,0 +1,19 @@
+package com.oldvabik.warehousemanagement.model;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Immutable copy of an {@link Order} with its user and lines, detached from any persistence context.
+ */
+public record OrderSnapshot(Long id,
+                            LocalDate date,
+                            Double totalPrice,
+                            UserSnapshot user,
+                            List<OrderProductSnapshot> orderProducts) {
+
+    public OrderSnapshot {
+        orderProducts = orderProducts == null ? List.of() : List.copyOf(orderProducts);
+    }
+
+}
@@ -12,6 +12,7 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import java.util.HashSet;
 import java.util.Objects;
@@ -19,16 +20,20 @@ import java.util.Set;
 import lombok.Data;
 import lombok.ToString;
 import org.hibernate.Hibernate;
+import org.hibernate.annotations.DynamicUpdate;
 
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Data
 @Entity
 @ToString(exclude = "category")
+// Only changed columns are written.
+@DynamicUpdate
 @Table(name = "products")
 public class Product {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "products_seq")
+    @SequenceGenerator(name = "products_seq", sequenceName = "products_seq", allocationSize = 50)
     private Long id;
 
     @Column(unique = true, nullable = false)
@@ -37,7 +42,9 @@ public class Product {
     @Column(nullable = false)
     private Double price;
 
-    @Column(nullable = false)
+    // Written on insert only: later changes go through StockStore, so saving an edited product
+    // never writes back a quantity read before a concurrent order changed it.
+    @Column(nullable = false, updatable = false)
     private Integer quantity;
 
     @ManyToOne(fetch = FetchType.EAGER)
@@ -0,0 +1,7 @@
+package com.oldvabik.warehousemanagement.model;
+
+/**
+ * Immutable copy of a {@link Product} with its category, detached from any persistence context.
+ */
+public record ProductSnapshot(Long id, String name, Double price, Integer quantity, CategorySnapshot category) {
+}
@@ -0,0 +1,7 @@
+package com.oldvabik.warehousemanagement.model;
+
+/**
+ * Immutable copy of a {@link User} without its orders.
+ */
+public record UserSnapshot(Long id, String firstName, String lastName, String email, Integer age) {
+}
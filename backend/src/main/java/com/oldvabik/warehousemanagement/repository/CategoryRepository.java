@@ -1,6 +1,8 @@
 package com.oldvabik.warehousemanagement.repository;
 
 import com.oldvabik.warehousemanagement.model.Category;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
 
@@ -8,5 +10,7 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
 
     Optional<Category> findByName(String name);
 
+    List<Category> findAllByNameIn(Collection<String> names);
+
     boolean existsByName(String name);
 }
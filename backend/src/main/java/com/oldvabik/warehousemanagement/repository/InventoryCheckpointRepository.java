@@ -0,0 +1,7 @@
+package com.oldvabik.warehousemanagement.repository;
+
+import com.oldvabik.warehousemanagement.model.InventoryCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface InventoryCheckpointRepository extends JpaRepository<InventoryCheckpoint, Integer> {
+}
@@ -1,6 +1,7 @@
 package com.oldvabik.warehousemanagement.repository;
 
 import com.oldvabik.warehousemanagement.model.Order;
+import java.util.Collection;
 import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -8,17 +9,23 @@ import org.springframework.data.repository.query.Param;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
 
-    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.orderProducts op LEFT JOIN FETCH op.product")
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.user "
+            + "LEFT JOIN FETCH o.orderProducts op LEFT JOIN FETCH op.product")
     List<Order> findAllWithProducts();
 
-    @Query("SELECT o FROM Order o LEFT JOIN FETCH o.orderProducts op LEFT JOIN FETCH op.product WHERE o.id = :id")
+    @Query("SELECT o FROM Order o LEFT JOIN FETCH o.user "
+            + "LEFT JOIN FETCH o.orderProducts op LEFT JOIN FETCH op.product WHERE o.id = :id")
     Order findWithProductsById(@Param("id") Long id);
 
-    @Query("SELECT DISTINCT o FROM Order o "
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.user "
+            + "LEFT JOIN FETCH o.orderProducts op LEFT JOIN FETCH op.product WHERE o.id IN :ids")
+    List<Order> findAllWithProductsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.user "
             + "LEFT JOIN FETCH o.orderProducts op LEFT JOIN FETCH op.product WHERE o.user.id = :userId")
     List<Order> findWithProductsByUserId(@Param("userId") Long userId);
 
-    @Query("SELECT o FROM Order o "
+    @Query("SELECT o FROM Order o LEFT JOIN FETCH o.user "
             + "LEFT JOIN FETCH o.orderProducts op LEFT JOIN FETCH op.product WHERE o.id = :id AND o.user.id = :userId")
     Order findWithProductsByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
 
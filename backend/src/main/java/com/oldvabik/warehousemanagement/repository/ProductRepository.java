@@ -1,12 +1,13 @@
 package com.oldvabik.warehousemanagement.repository;
 
 import com.oldvabik.warehousemanagement.model.Product;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductStockRepository {
 
     @Query(value = "SELECT * FROM products WHERE name = :name", nativeQuery = true)
     Optional<Product> findByName(String name);
@@ -19,6 +20,8 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     @Query(value = "SELECT * FROM products WHERE id = :id AND category_id = :categoryId", nativeQuery = true)
     Product findByIdAndCategoryId(Long id, Long categoryId);
 
+    List<Product> findAllByNameIn(Collection<String> names);
+
     boolean existsByName(String name);
 
 }
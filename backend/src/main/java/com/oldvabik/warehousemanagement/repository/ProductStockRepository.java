@@ -0,0 +1,28 @@
+package com.oldvabik.warehousemanagement.repository;
+
+import com.oldvabik.warehousemanagement.model.Product;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stock changes done in the database with relative, conditional updates rather than by saving a
+ * quantity read earlier, so concurrent orders can neither oversell nor overwrite each other.
+ * Rows are always updated in ascending product id order, so two transactions touching the same
+ * products lock them in the same order and cannot deadlock each other.
+ */
+public interface ProductStockRepository {
+
+    /**
+     * Takes the {@code taken} quantities off the products' stock, each row only if enough is left,
+     * and adds the {@code returned} ones back, all in one JDBC batch. A product should appear in
+     * only one of the maps. Returns the products whose stock was too low; the other rows have still
+     * been changed. Services do not call this directly but go through
+     * {@link com.oldvabik.warehousemanagement.inventory.DatabaseStockStore}, which undoes those rows
+     * itself, so a shortage leaves the stock untouched and needs no rollback.
+     */
+    List<Product> moveStock(Map<Product, Integer> taken, Map<Product, Integer> returned);
+
+    // Replaces the product's stock with one update and shows it on the entity, which never writes it.
+    void setQuantity(Product product, int quantity);
+
+}
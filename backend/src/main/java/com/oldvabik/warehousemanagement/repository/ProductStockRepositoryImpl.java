@@ -0,0 +1,89 @@
+package com.oldvabik.warehousemanagement.repository;
+
+import com.oldvabik.warehousemanagement.model.Product;
+import jakarta.persistence.EntityManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import org.hibernate.Session;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+class ProductStockRepositoryImpl implements ProductStockRepository {
+
+    // A negative change always passes the check, so the same statement also returns stock.
+    private static final String CHANGE_STOCK =
+            "UPDATE products SET quantity = quantity - ? WHERE id = ? AND quantity >= ?";
+    private static final String SET_STOCK = "UPDATE products SET quantity = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+
+    ProductStockRepositoryImpl(JdbcTemplate jdbcTemplate, EntityManager entityManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<Product> moveStock(Map<Product, Integer> taken, Map<Product, Integer> returned) {
+        List<StockChange> changes = new ArrayList<>(taken.size() + returned.size());
+        taken.forEach((product, quantity) -> changes.add(new StockChange(product, quantity)));
+        returned.forEach((product, quantity) -> changes.add(new StockChange(product, -quantity)));
+        if (changes.isEmpty()) {
+            return List.of();
+        }
+        changes.sort(Comparator.comparing(change -> change.product().getId()));
+
+        int[] counts = jdbcTemplate.batchUpdate(CHANGE_STOCK, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement statement, int i) throws SQLException {
+                StockChange change = changes.get(i);
+                statement.setInt(1, change.taken());
+                statement.setLong(2, change.product().getId());
+                statement.setInt(3, change.taken());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return changes.size();
+            }
+        });
+        List<Product> outOfStock = new ArrayList<>();
+        for (int i = 0; i < changes.size(); i++) {
+            StockChange change = changes.get(i);
+            if (counts[i] == 0) {
+                // A returned row can only be missing if the product was deleted; there is nothing to restock.
+                if (change.taken() > 0) {
+                    outOfStock.add(change.product());
+                }
+            } else {
+                adjustLoadedQuantity(change.product(), -change.taken());
+            }
+        }
+        return outOfStock;
+    }
+
+    @Override
+    public void setQuantity(Product product, int quantity) {
+        jdbcTemplate.update(SET_STOCK, quantity, product.getId());
+        product.setQuantity(quantity);
+    }
+
+    /**
+     * Mirrors the change on the loaded entity so the response shows the new stock, and marks the
+     * entity read-only first so Hibernate does not write the absolute, possibly outdated, value back.
+     */
+    private void adjustLoadedQuantity(Product product, int delta) {
+        if (entityManager.contains(product)) {
+            entityManager.unwrap(Session.class).setReadOnly(product, true);
+        }
+        product.setQuantity(product.getQuantity() + delta);
+    }
+
+    private record StockChange(Product product, int taken) {
+    }
+
+}
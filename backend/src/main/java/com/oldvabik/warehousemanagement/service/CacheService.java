@@ -0,0 +1,78 @@
+package com.oldvabik.warehousemanagement.service;
+
+import com.oldvabik.warehousemanagement.cache.CacheRegistry;
+import com.oldvabik.warehousemanagement.cache.CacheStats;
+import com.oldvabik.warehousemanagement.cache.EntityCache;
+import com.oldvabik.warehousemanagement.dto.CacheSizeDto;
+import com.oldvabik.warehousemanagement.exception.ResourceNotFoundException;
+import com.oldvabik.warehousemanagement.model.CacheStatus;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+@Slf4j
+@Service
+public class CacheService {
+
+    private final CacheRegistry caches;
+
+    public CacheService(CacheRegistry caches) {
+        this.caches = caches;
+    }
+
+    public List<CacheStatus> getCaches() {
+        return caches.all().stream()
+                .map(this::toStatus)
+                .toList();
+    }
+
+    public CacheStatus getCache(String name) {
+        return toStatus(findCache(name));
+    }
+
+    public Map<String, CacheStats> getStats() {
+        Map<String, CacheStats> stats = new LinkedHashMap<>();
+        caches.all().forEach(cache -> stats.put(cache.getName(), cache.stats()));
+        return stats;
+    }
+
+    public CacheStats getCacheStats(String name) {
+        return findCache(name).stats();
+    }
+
+    public void resetCacheStats(String name) {
+        findCache(name).resetStats();
+    }
+
+    public CacheStatus resizeCache(String name, CacheSizeDto cacheSizeDto) {
+        EntityCache<?> cache = findCache(name);
+        long maxWeight = cacheSizeDto.getMaxWeight() != null
+                ? cacheSizeDto.getMaxWeight()
+                : cache.getMaxWeight();
+        log.info("Resizing cache {} to capacity {}", name, cacheSizeDto.getCapacity());
+        cache.resize(cacheSizeDto.getCapacity(), maxWeight);
+        return toStatus(cache);
+    }
+
+    public void clearCache(String name) {
+        EntityCache<?> cache = findCache(name);
+        log.warn("Clearing cache {}", name);
+        cache.clear();
+    }
+
+    private EntityCache<?> findCache(String name) {
+        EntityCache<?> cache = caches.find(name);
+        if (cache == null) {
+            throw new ResourceNotFoundException("Cache with name " + name + " not found");
+        }
+        return cache;
+    }
+
+    private CacheStatus toStatus(EntityCache<?> cache) {
+        return new CacheStatus(cache.getName(), cache.getCapacity(), cache.getMaxWeight(),
+                cache.size(), cache.weight());
+    }
+
+}
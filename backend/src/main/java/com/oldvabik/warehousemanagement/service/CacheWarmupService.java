@@ -0,0 +1,158 @@
+package com.oldvabik.warehousemanagement.service;
+
+import com.oldvabik.warehousemanagement.cache.CacheSnapshot;
+import com.oldvabik.warehousemanagement.cache.EntityCache;
+import com.oldvabik.warehousemanagement.cache.HotKey;
+import com.oldvabik.warehousemanagement.config.CacheProperties;
+import com.oldvabik.warehousemanagement.mapper.CategoryMapper;
+import com.oldvabik.warehousemanagement.mapper.OrderMapper;
+import com.oldvabik.warehousemanagement.mapper.ProductMapper;
+import com.oldvabik.warehousemanagement.mapper.UserMapper;
+import com.oldvabik.warehousemanagement.model.Category;
+import com.oldvabik.warehousemanagement.model.CategorySnapshot;
+import com.oldvabik.warehousemanagement.model.Order;
+import com.oldvabik.warehousemanagement.model.OrderSnapshot;
+import com.oldvabik.warehousemanagement.model.Product;
+import com.oldvabik.warehousemanagement.model.ProductSnapshot;
+import com.oldvabik.warehousemanagement.model.User;
+import com.oldvabik.warehousemanagement.model.UserSnapshot;
+import com.oldvabik.warehousemanagement.repository.CategoryRepository;
+import com.oldvabik.warehousemanagement.repository.OrderRepository;
+import com.oldvabik.warehousemanagement.repository.ProductRepository;
+import com.oldvabik.warehousemanagement.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Saves the ids held by the entity caches, hottest first, to a local file every few minutes and on
+ * shutdown. After a restart the ids are reloaded in batches in the background while the application
+ * already serves traffic, so the database sees a few {@code IN} queries instead of a burst of
+ * single-row lookups. The saved access frequencies are restored as well, so the LFU policy keeps
+ * treating the warmed entries as hot instead of evicting them first.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "cache.persistence", name = "enabled", havingValue = "true")
+public class CacheWarmupService {
+
+    private final EntityCache<CategorySnapshot> categoryCache;
+    private final EntityCache<ProductSnapshot> productCache;
+    private final EntityCache<UserSnapshot> userCache;
+    private final EntityCache<OrderSnapshot> orderCache;
+    private final CategoryRepository categoryRepository;
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    private final OrderRepository orderRepository;
+    private final CategoryMapper categoryMapper;
+    private final ProductMapper productMapper;
+    private final UserMapper userMapper;
+    private final OrderMapper orderMapper;
+    private final Path path;
+    private final int batchSize;
+
+    public CacheWarmupService(EntityCache<CategorySnapshot> categoryCache,
+                              EntityCache<ProductSnapshot> productCache,
+                              EntityCache<UserSnapshot> userCache,
+                              EntityCache<OrderSnapshot> orderCache,
+                              CategoryRepository categoryRepository,
+                              ProductRepository productRepository,
+                              UserRepository userRepository,
+                              OrderRepository orderRepository,
+                              CategoryMapper categoryMapper,
+                              ProductMapper productMapper,
+                              UserMapper userMapper,
+                              OrderMapper orderMapper,
+                              CacheProperties properties) {
+        this.categoryCache = categoryCache;
+        this.productCache = productCache;
+        this.userCache = userCache;
+        this.orderCache = orderCache;
+        this.categoryRepository = categoryRepository;
+        this.productRepository = productRepository;
+        this.userRepository = userRepository;
+        this.orderRepository = orderRepository;
+        this.categoryMapper = categoryMapper;
+        this.productMapper = productMapper;
+        this.userMapper = userMapper;
+        this.orderMapper = orderMapper;
+        this.path = Path.of(properties.getPersistence().getPath());
+        this.batchSize = Math.max(1, properties.getPersistence().getBatchSize());
+    }
+
+    @Async("executor")
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!Files.exists(path)) {
+            log.info("No cache snapshot at {}, starting with empty caches", path);
+            return;
+        }
+        CacheSnapshot snapshot;
+        try {
+            snapshot = CacheSnapshot.read(path);
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Could not read cache snapshot {}: {}", path, e.getMessage());
+            return;
+        }
+        warm(categoryCache, snapshot, ids -> categoryRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Category::getId, categoryMapper::toSnapshot)));
+        warm(productCache, snapshot, ids -> productRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Product::getId, productMapper::toSnapshot)));
+        warm(userCache, snapshot, ids -> userRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(User::getId, userMapper::toSnapshot)));
+        warm(orderCache, snapshot, ids -> orderRepository.findAllWithProductsByIdIn(ids).stream()
+                .collect(Collectors.toMap(Order::getId, orderMapper::toSnapshot)));
+    }
+
+    @PreDestroy
+    @Scheduled(initialDelayString = "${cache.persistence.interval:5m}",
+            fixedDelayString = "${cache.persistence.interval:5m}")
+    public void saveSnapshot() {
+        Map<String, List<HotKey>> keys = new LinkedHashMap<>();
+        for (EntityCache<?> cache : List.of(categoryCache, productCache, userCache, orderCache)) {
+            keys.put(cache.getName(), cache.hotKeys());
+        }
+        try {
+            new CacheSnapshot(keys).write(path);
+            log.debug("Cache snapshot saved to {}", path);
+        } catch (IOException e) {
+            log.warn("Could not save cache snapshot to {}: {}", path, e.getMessage());
+        }
+    }
+
+    // Loads the hottest ids first, stops at the cache's capacity and restores their frequencies.
+    private <T> void warm(EntityCache<T> cache, CacheSnapshot snapshot, Function<List<Long>, Map<Long, T>> finder) {
+        List<HotKey> keys = snapshot.keysOf(cache.getName()).stream()
+                .limit(cache.getCapacity())
+                .toList();
+        long[] ids = keys.stream().mapToLong(HotKey::id).toArray();
+        int loaded = 0;
+        try {
+            for (int from = 0; from < ids.length; from += batchSize) {
+                long[] batch = Arrays.copyOfRange(ids, from, Math.min(ids.length, from + batchSize));
+                loaded += cache.loadAll(batch, missing -> finder.apply(Arrays.stream(missing).boxed().toList()));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Warming up cache {} stopped after {} entries: {}", cache.getName(), loaded, e.getMessage());
+            return;
+        } finally {
+            keys.forEach(key -> cache.restoreFrequency(key.id(), key.frequency()));
+        }
+        log.info("Warmed up cache {} with {} of {} saved entries", cache.getName(), loaded, ids.length);
+    }
+
+}
@@ -1,17 +1,27 @@
 package com.oldvabik.warehousemanagement.service;
 
-import com.oldvabik.warehousemanagement.cache.CategoryCache;
+import com.oldvabik.warehousemanagement.cache.CacheInvalidator;
+import com.oldvabik.warehousemanagement.cache.CollectionCache;
+import com.oldvabik.warehousemanagement.cache.EntityCache;
+import com.oldvabik.warehousemanagement.cache.EntityRef;
+import com.oldvabik.warehousemanagement.cache.EntityType;
 import com.oldvabik.warehousemanagement.dto.CategoryDto;
 import com.oldvabik.warehousemanagement.exception.AlreadyExistsException;
 import com.oldvabik.warehousemanagement.exception.ResourceNotFoundException;
 import com.oldvabik.warehousemanagement.mapper.CategoryMapper;
+import com.oldvabik.warehousemanagement.mapper.ProductMapper;
 import com.oldvabik.warehousemanagement.model.Category;
+import com.oldvabik.warehousemanagement.model.CategorySnapshot;
 import com.oldvabik.warehousemanagement.model.Product;
+import com.oldvabik.warehousemanagement.model.ProductSnapshot;
 import com.oldvabik.warehousemanagement.repository.CategoryRepository;
 import com.oldvabik.warehousemanagement.repository.ProductRepository;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.LongFunction;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -22,19 +32,31 @@ public class CategoryService {
 
     private final CategoryRepository categoryRepository;
     private final CategoryMapper categoryMapper;
-    private final CategoryCache categoryCache;
+    private final EntityCache<CategorySnapshot> categoryCache;
     private final ProductRepository productRepository;
+    private final ProductMapper productMapper;
+    private final CollectionCache collectionCache;
+    private final CacheInvalidator cacheInvalidator;
+    private final LongFunction<CategorySnapshot> categoryLoader = this::loadCategory;
 
     private static final String CATEGORY_NOT_FOUND = "Category not found";
+    private static final Set<EntityType> CATEGORY_TABLES = EnumSet.of(EntityType.CATEGORY);
+    private static final Set<EntityType> PRODUCT_TABLES = EnumSet.of(EntityType.PRODUCT, EntityType.CATEGORY);
 
     public CategoryService(CategoryRepository categoryRepository,
                            CategoryMapper categoryMapper,
-                           CategoryCache categoryCache,
-                           ProductRepository productRepository) {
+                           EntityCache<CategorySnapshot> categoryCache,
+                           ProductRepository productRepository,
+                           ProductMapper productMapper,
+                           CollectionCache collectionCache,
+                           CacheInvalidator cacheInvalidator) {
         this.categoryRepository = categoryRepository;
         this.categoryMapper = categoryMapper;
         this.categoryCache = categoryCache;
         this.productRepository = productRepository;
+        this.productMapper = productMapper;
+        this.collectionCache = collectionCache;
+        this.cacheInvalidator = cacheInvalidator;
     }
 
     public Category createCategory(CategoryDto categoryDto) {
@@ -44,7 +66,8 @@ public class CategoryService {
         log.info("Creating new category: {}", categoryDto.getName());
         Category category = categoryMapper.toEntity(categoryDto);
         Category savedCategory = categoryRepository.save(category);
-        categoryCache.put(savedCategory.getId(), savedCategory);
+        categoryCache.put(savedCategory.getId(), categoryMapper.toSnapshot(savedCategory));
+        cacheInvalidator.broadcast(EntityRef.category(savedCategory.getId()));
         log.info("Category with id {} created and cached", savedCategory.getId());
         return savedCategory;
     }
@@ -62,10 +85,11 @@ public class CategoryService {
             );
         }
 
-        List<String> duplicateNamesInDb = categoriesDto.stream()
-                .map(CategoryDto::getName)
-                .filter(categoryRepository::existsByName)
-                .toList();
+        List<String> names = categoriesDto.stream().map(CategoryDto::getName).toList();
+        Set<String> existingNames = categoryRepository.findAllByNameIn(names).stream()
+                .map(Category::getName)
+                .collect(Collectors.toSet());
+        List<String> duplicateNamesInDb = names.stream().filter(existingNames::contains).toList();
         if (!duplicateNamesInDb.isEmpty()) {
             throw new IllegalArgumentException("Категории с именами " + duplicateNamesInDb + " уже существуют");
         }
@@ -75,37 +99,28 @@ public class CategoryService {
                 .toList();
 
         log.info("Creating new categories: {}", categories.size());
-        return categoryRepository.saveAll(categories);
+        List<Category> savedCategories = categoryRepository.saveAll(categories);
+        savedCategories.forEach(category -> {
+            categoryCache.clearNegative(category.getId());
+            cacheInvalidator.broadcast(EntityRef.category(category.getId()));
+        });
+        return savedCategories;
     }
 
-    public List<Category> getCategories() {
-        List<Category> categories = categoryRepository.findAll();
+    public List<CategorySnapshot> getCategories() {
+        List<CategorySnapshot> categories = collectionCache.getOrLoad("categories", CATEGORY_TABLES,
+                () -> categoryRepository.findAll().stream().map(categoryMapper::toSnapshot).toList());
         if (categories.isEmpty()) {
             throw new ResourceNotFoundException("Categories not found");
         }
-
-        for (Category category : categories) {
-            if (categoryCache.get(category.getId()) == null) {
-                categoryCache.put(category.getId(), category);
-                log.info("Category with id {} added to cache", category.getId());
-            } else {
-                log.info("Category with id {} already exists in cache", category.getId());
-            }
-        }
         return categories;
     }
 
-    public Category getCategoryById(Long id) {
-        Category cachedCategory = categoryCache.get(id);
-        if (cachedCategory != null) {
-            log.info("Category with id {} retrieved from cache", id);
-            return cachedCategory;
+    public CategorySnapshot getCategoryById(Long id) {
+        CategorySnapshot category = categoryCache.getOrLoad(id, categoryLoader);
+        if (category == null) {
+            throw new ResourceNotFoundException(CATEGORY_NOT_FOUND);
         }
-
-        Category category = categoryRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException(CATEGORY_NOT_FOUND));
-        categoryCache.put(category.getId(), category);
-        log.info("Category with id {} retrieved from repository", category.getId());
         return category;
     }
 
@@ -122,7 +137,8 @@ public class CategoryService {
         }
         log.info("Updating Category with id {}", category.getId());
         Category savedCategory = categoryRepository.save(category);
-        categoryCache.put(savedCategory.getId(), savedCategory);
+        categoryCache.put(savedCategory.getId(), categoryMapper.toSnapshot(savedCategory));
+        cacheInvalidator.invalidateDependents(EntityRef.category(savedCategory.getId()));
         log.info("Category with id {} updated and cached", savedCategory.getId());
         return savedCategory;
     }
@@ -133,11 +149,15 @@ public class CategoryService {
         log.warn("Deleting category with id {}", category.getId());
         categoryRepository.delete(category);
         categoryCache.remove(category.getId());
+        cacheInvalidator.invalidateDependents(EntityRef.category(category.getId()));
         log.info("Category with id {} deleted from cache", category.getId());
     }
 
-    public List<Product> getProductsByCategory(Long categoryId) {
-        List<Product> products = productRepository.findByCategoryId(categoryId);
+    public List<ProductSnapshot> getProductsByCategory(Long categoryId) {
+        List<ProductSnapshot> products = collectionCache.getOrLoad("products:category:" + categoryId,
+                PRODUCT_TABLES, () -> productRepository.findByCategoryId(categoryId).stream()
+                        .map(productMapper::toSnapshot)
+                        .toList());
         if (products.isEmpty()) {
             throw new ResourceNotFoundException("Product with id " + categoryId + " not found");
         }
@@ -154,4 +174,8 @@ public class CategoryService {
         return product;
     }
 
+    private CategorySnapshot loadCategory(long id) {
+        return categoryRepository.findById(id).map(categoryMapper::toSnapshot).orElse(null);
+    }
+
 }
@@ -0,0 +1,153 @@
+package com.oldvabik.warehousemanagement.service;
+
+import com.oldvabik.warehousemanagement.config.OrderProperties;
+import com.oldvabik.warehousemanagement.exception.AlreadyExistsException;
+import com.oldvabik.warehousemanagement.exception.RequestInProgressException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+/**
+ * Remembers the result of each request sent with an {@code Idempotency-Key} header, so a client
+ * retrying after a timeout gets the first result back instead of running the operation again.
+ * A duplicate that arrives while the first attempt is still running waits for it. Failed attempts
+ * are not kept, so they can be retried. Keys expire after a fixed time and the store is bounded;
+ * past the capacity the oldest finished keys are dropped first. A key whose first attempt is still
+ * running is never dropped, so a retry cannot run the operation a second time; a duplicate that
+ * gives up waiting for it gets 409 Conflict. If the first attempt itself gives up with a
+ * {@link RequestInProgressException} carrying the outcome of work that may still succeed, its key
+ * is kept and bound to that outcome, so retries wait for the real result instead of running again.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    private final OrderProperties.Idempotency settings;
+    // Insertion order is expiry order, since every key lives for the same time.
+    private final Map<String, Attempt> attempts = new LinkedHashMap<>();
+
+    public IdempotencyService(OrderProperties orderProperties) {
+        this.settings = orderProperties.getIdempotency();
+    }
+
+    /**
+     * Runs the action once per key within the operation's scope, such as {@code "POST /users/1/orders"}.
+     * The request must equal the one first sent with the key, otherwise AlreadyExistsException is thrown.
+     * Without a key the action simply runs.
+     */
+    public <T> T execute(String scope, String key, Object request, Supplier<T> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        String id = scope + " " + key;
+        Attempt attempt;
+        boolean first;
+        synchronized (attempts) {
+            long now = System.nanoTime();
+            evictExpired(now);
+            attempt = attempts.get(id);
+            if (attempt != null && !attempt.request().equals(request)) {
+                throw new AlreadyExistsException("Idempotency-Key " + key + " was already used for a different request");
+            }
+            first = attempt == null;
+            if (first) {
+                if (attempts.size() >= settings.getCapacity()) {
+                    evictEldestFinished();
+                }
+                attempt = new Attempt(request, now + settings.getTtl().toNanos(), new CompletableFuture<>());
+                attempts.put(id, attempt);
+            }
+        }
+        if (!first) {
+            log.info("Replaying the result for Idempotency-Key {}", key);
+            return await(attempt, key);
+        }
+        try {
+            T result = action.get();
+            attempt.result().complete(result);
+            return result;
+        } catch (RequestInProgressException e) {
+            if (e.getOutcome() == null) {
+                fail(id, attempt, e);
+            } else {
+                completeWith(id, attempt, e.getOutcome());
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            fail(id, attempt, e);
+            throw e;
+        }
+    }
+
+    // Keeps the key while the outcome is in doubt and settles the attempt once it is known.
+    private void completeWith(String id, Attempt attempt, CompletableFuture<?> outcome) {
+        outcome.whenComplete((result, error) -> {
+            if (error == null) {
+                attempt.result().complete(result);
+            } else {
+                fail(id, attempt, error);
+            }
+        });
+    }
+
+    // Forgets the key, so the request can be retried, and hands the error to any waiting duplicate.
+    private void fail(String id, Attempt attempt, Throwable error) {
+        synchronized (attempts) {
+            attempts.remove(id, attempt);
+        }
+        attempt.result().completeExceptionally(error);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T await(Attempt attempt, String key) {
+        try {
+            return (T) attempt.result().get(settings.getWaitTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new RequestInProgressException("Request with Idempotency-Key " + key + " is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for Idempotency-Key " + key);
+        }
+    }
+
+    // Attempts still running are skipped; they are removed once expired and finished.
+    private void evictExpired(long now) {
+        Iterator<Attempt> iterator = attempts.values().iterator();
+        while (iterator.hasNext()) {
+            Attempt attempt = iterator.next();
+            if (attempt.expiresAt() - now > 0) {
+                return;
+            }
+            if (attempt.result().isDone()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    // If every attempt is still running the store briefly exceeds its capacity instead.
+    private void evictEldestFinished() {
+        Iterator<Attempt> iterator = attempts.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().result().isDone()) {
+                iterator.remove();
+                return;
+            }
+        }
+    }
+
+    private record Attempt(Object request, long expiresAt, CompletableFuture<Object> result) {
+    }
+
+}
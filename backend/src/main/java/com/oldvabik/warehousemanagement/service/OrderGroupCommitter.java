@@ -0,0 +1,181 @@
+package com.oldvabik.warehousemanagement.service;
+
+import com.oldvabik.warehousemanagement.config.OrderProperties;
+import com.oldvabik.warehousemanagement.dto.OrderDto;
+import com.oldvabik.warehousemanagement.exception.RequestInProgressException;
+import com.oldvabik.warehousemanagement.model.Order;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Optional group commit for synchronous order placement. Callers still block until their own order
+ * is placed, but orders arriving within a short window, or up to a maximum count, are collected by
+ * one thread into a group that is placed with {@link OrderService#createOrders}, so the group pays
+ * for a single commit. Closed groups are handed to a small pool of committers, so the next group
+ * gathers while the current one commits; only when every committer is busy does the collector
+ * commit a group itself. Each caller gets its own order or its own error back; a rejected order
+ * does not fail the rest of its group.
+ */
+@Slf4j
+@Service
+public class OrderGroupCommitter {
+
+    private static final long POLL_MILLIS = 100;
+
+    private final OrderService orderService;
+    private final Executor collectorExecutor;
+    private final Executor commitExecutor;
+    private final OrderProperties.GroupCommit settings;
+    private final BlockingQueue<Pending> queue;
+    private volatile boolean running;
+
+    public OrderGroupCommitter(OrderService orderService,
+                               @Qualifier("orderGroupCollectorExecutor") Executor collectorExecutor,
+                               @Qualifier("orderGroupCommitExecutor") Executor commitExecutor,
+                               OrderProperties orderProperties) {
+        this.orderService = orderService;
+        this.collectorExecutor = collectorExecutor;
+        this.commitExecutor = commitExecutor;
+        this.settings = orderProperties.getGroupCommit();
+        this.queue = new ArrayBlockingQueue<>(settings.getQueueCapacity());
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        running = true;
+        collectorExecutor.execute(this::collect);
+        log.info("Order group commit started with a {} ms window, up to {} orders per group and {} committers",
+                settings.getWindow().toMillis(), settings.getMaxOrders(), settings.getCommitters());
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+    }
+
+    public boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    /**
+     * Places the order as part of the next group and waits for it. If the collector is stopped or
+     * too many orders are already waiting, the order is placed on its own instead. A caller that
+     * waits longer than the timeout gets 503 if its order was still queued, and is dropped from the
+     * queue, or 409 if its group is already being committed and the order may still be placed.
+     */
+    public Order createOrder(Long userId, OrderDto orderDto) {
+        Pending pending = new Pending(new OrderService.OrderRequest(userId, orderDto), new CompletableFuture<>());
+        if (!running || !queue.offer(pending)) {
+            return orderService.createOrder(userId, orderDto);
+        }
+        if (!running && queue.remove(pending)) {
+            // Stopped between the check and the offer; the collector may already be gone.
+            return orderService.createOrder(userId, orderDto);
+        }
+        try {
+            return await(pending, settings.getWaitTimeout().toMillis());
+        } catch (TimeoutException e) {
+            if (queue.remove(pending)) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Order was not placed in time, retry later");
+            }
+            try {
+                // The group may have finished in the meantime.
+                return await(pending, 0);
+            } catch (TimeoutException stillRunning) {
+                throw new RequestInProgressException("Order for user " + userId + " is still being placed",
+                        pending.result());
+            }
+        }
+    }
+
+    private static Order await(Pending pending, long timeoutMillis) throws TimeoutException {
+        try {
+            return pending.result().get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the order to be placed");
+        }
+    }
+
+    private void collect() {
+        while (running || !queue.isEmpty()) {
+            List<Pending> group = new ArrayList<>(settings.getMaxOrders());
+            try {
+                Pending first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                long deadline = System.nanoTime() + settings.getWindow().toNanos();
+                while (group.size() < settings.getMaxOrders()) {
+                    Pending next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+                handOff(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                group.forEach(pending -> pending.result().completeExceptionally(
+                        new IllegalStateException("Order group commit was interrupted")));
+                return;
+            }
+        }
+    }
+
+    // Commits on a committer thread, or right here when they are all busy or shut down.
+    private void handOff(List<Pending> group) {
+        try {
+            commitExecutor.execute(() -> commit(group));
+        } catch (RejectedExecutionException e) {
+            commit(group);
+        }
+    }
+
+    private void commit(List<Pending> group) {
+        List<OrderService.OrderResult> results;
+        try {
+            results = orderService.createOrders(group.stream().map(Pending::request).toList());
+        } catch (RuntimeException e) {
+            log.error("Could not place a group of {} orders", group.size(), e);
+            group.forEach(pending -> pending.result().completeExceptionally(e));
+            return;
+        }
+        for (int i = 0; i < group.size(); i++) {
+            OrderService.OrderResult result = results.get(i);
+            if (result.error() == null) {
+                group.get(i).result().complete(result.order());
+            } else {
+                group.get(i).result().completeExceptionally(result.error());
+            }
+        }
+    }
+
+    private record Pending(OrderService.OrderRequest request, CompletableFuture<Order> result) {
+    }
+
+}
@@ -0,0 +1,143 @@
+package com.oldvabik.warehousemanagement.service;
+
+import com.oldvabik.warehousemanagement.config.OrderProperties;
+import com.oldvabik.warehousemanagement.dto.OrderDto;
+import com.oldvabik.warehousemanagement.exception.ResourceNotFoundException;
+import com.oldvabik.warehousemanagement.model.OrderIntakeStatus;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+/**
+ * Optional asynchronous order intake. Requests are validated and put on a bounded queue, and the
+ * caller gets a ticket to poll instead of waiting for the database. Worker threads drain the queue
+ * in micro-batches and place each batch with {@link OrderService#createOrders}, so a batch shares one
+ * transaction and, when stock allows, one stock update. On shutdown the workers finish the queue.
+ */
+@Slf4j
+@Service
+public class OrderIntakeService {
+
+    private static final long POLL_MILLIS = 100;
+
+    private final OrderService orderService;
+    private final Executor executor;
+    private final OrderProperties.Intake settings;
+    private final BlockingQueue<Ticket> queue;
+    private final Map<String, OrderIntakeStatus> statuses;
+    private volatile boolean running;
+
+    public OrderIntakeService(OrderService orderService,
+                              @Qualifier("orderIntakeExecutor") Executor executor,
+                              OrderProperties orderProperties) {
+        this.orderService = orderService;
+        this.executor = executor;
+        this.settings = orderProperties.getIntake();
+        this.queue = new ArrayBlockingQueue<>(settings.getQueueCapacity());
+        int statusCapacity = settings.getStatusCapacity();
+        this.statuses = Collections.synchronizedMap(new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, OrderIntakeStatus> eldest) {
+                return size() > statusCapacity;
+            }
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < settings.getWorkers(); i++) {
+            executor.execute(this::work);
+        }
+        log.info("Order intake started with {} workers", settings.getWorkers());
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+    }
+
+    public boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    // Queues the order; empty if the queue is full.
+    public Optional<OrderIntakeStatus> submit(Long userId, OrderDto orderDto) {
+        String ticket = UUID.randomUUID().toString();
+        OrderIntakeStatus status = OrderIntakeStatus.queued(ticket);
+        statuses.put(ticket, status);
+        if (!queue.offer(new Ticket(ticket, new OrderService.OrderRequest(userId, orderDto)))) {
+            statuses.remove(ticket);
+            log.warn("Order intake queue is full, rejecting an order for user {}", userId);
+            return Optional.empty();
+        }
+        return Optional.of(status);
+    }
+
+    public OrderIntakeStatus getStatus(String ticket) {
+        OrderIntakeStatus status = statuses.get(ticket);
+        if (status == null) {
+            throw new ResourceNotFoundException("Order ticket " + ticket + " not found");
+        }
+        return status;
+    }
+
+    private void work() {
+        List<Ticket> batch = new ArrayList<>(settings.getBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                Ticket first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, settings.getBatchSize() - 1);
+                place(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void place(List<Ticket> batch) {
+        List<OrderService.OrderResult> results;
+        try {
+            results = orderService.createOrders(batch.stream().map(Ticket::request).toList());
+        } catch (RuntimeException e) {
+            log.error("Could not place a batch of {} queued orders", batch.size(), e);
+            batch.forEach(ticket -> statuses.put(ticket.id(), new OrderIntakeStatus(ticket.id(),
+                    OrderIntakeStatus.State.REJECTED, null, e.getMessage())));
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            String id = batch.get(i).id();
+            OrderService.OrderResult result = results.get(i);
+            statuses.put(id, result.error() == null
+                    ? new OrderIntakeStatus(id, OrderIntakeStatus.State.PLACED, result.order().getId(), null)
+                    : new OrderIntakeStatus(id, OrderIntakeStatus.State.REJECTED, null, result.error().getMessage()));
+        }
+    }
+
+    private record Ticket(String id, OrderService.OrderRequest request) {
+    }
+
+}
@@ -1,11 +1,16 @@
 package com.oldvabik.warehousemanagement.service;
 
-import com.oldvabik.warehousemanagement.cache.OrderCache;
+import com.oldvabik.warehousemanagement.cache.CacheInvalidator;
+import com.oldvabik.warehousemanagement.cache.EntityCache;
+import com.oldvabik.warehousemanagement.cache.EntityRef;
 import com.oldvabik.warehousemanagement.dto.OrderDto;
 import com.oldvabik.warehousemanagement.exception.ResourceNotFoundException;
+import com.oldvabik.warehousemanagement.inventory.StockStore;
+import com.oldvabik.warehousemanagement.mapper.OrderMapper;
 import com.oldvabik.warehousemanagement.model.Order;
 import com.oldvabik.warehousemanagement.model.OrderProduct;
 import com.oldvabik.warehousemanagement.model.OrderProductId;
+import com.oldvabik.warehousemanagement.model.OrderSnapshot;
 import com.oldvabik.warehousemanagement.model.Product;
 import com.oldvabik.warehousemanagement.model.User;
 import com.oldvabik.warehousemanagement.repository.OrderProductRepository;
@@ -14,9 +19,17 @@ import com.oldvabik.warehousemanagement.repository.ProductRepository;
 import com.oldvabik.warehousemanagement.repository.UserRepository;
 import jakarta.transaction.Transactional;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
@@ -25,176 +38,289 @@ import org.springframework.stereotype.Service;
 public class OrderService {
 
     private final OrderRepository orderRepository;
-    private final OrderCache orderCache;
+    private final EntityCache<OrderSnapshot> orderCache;
+    private final OrderMapper orderMapper;
     private final UserRepository userRepository;
     private final ProductRepository productRepository;
     private final OrderProductRepository orderProductRepository;
+    private final CacheInvalidator cacheInvalidator;
+    private final TransactionRetry transactionRetry;
+    private final StockStore stockStore;
+    private final LongFunction<OrderSnapshot> orderLoader = this::loadOrder;
 
     private static final String ORDER_NOT_FOUND = "Order not found";
 
     public OrderService(OrderRepository orderRepository,
-                        OrderCache orderCache,
+                        EntityCache<OrderSnapshot> orderCache,
+                        OrderMapper orderMapper,
                         UserRepository userRepository,
                         ProductRepository productRepository,
-                        OrderProductRepository orderProductRepository) {
+                        OrderProductRepository orderProductRepository,
+                        CacheInvalidator cacheInvalidator,
+                        TransactionRetry transactionRetry,
+                        StockStore stockStore) {
         this.orderRepository = orderRepository;
         this.orderCache = orderCache;
+        this.orderMapper = orderMapper;
         this.userRepository = userRepository;
         this.productRepository = productRepository;
         this.orderProductRepository = orderProductRepository;
+        this.cacheInvalidator = cacheInvalidator;
+        this.transactionRetry = transactionRetry;
+        this.stockStore = stockStore;
     }
 
-    @Transactional
     public Order createOrder(Long id, OrderDto orderDto) {
+        SavedOrder saved = transactionRetry.execute(() -> placeOrder(id, orderDto));
+        orderCache.put(saved.order().getId(), saved.snapshot());
+        cacheInvalidator.broadcast(EntityRef.order(saved.order().getId()));
+        log.info("Order with id {} created and cached", saved.order().getId());
+        return saved.order();
+    }
+
+    private SavedOrder placeOrder(Long id, OrderDto orderDto) {
         final User user = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
+        Map<String, Integer> quantities = quantitiesByName(orderDto);
+        Map<String, Product> products = findProductsByName(quantities.keySet());
+        double totalPrice = takeStock(quantities, products);
+
         Order order = new Order();
         order.setUser(user);
         order.setDate(LocalDate.now());
-        order.setTotalPrice(0.0);
+        order.setTotalPrice(totalPrice);
+        log.info("Creating order with user id {}", user.getId());
         Order savedOrder = orderRepository.save(order);
+        savedOrder.setOrderProducts(saveLines(savedOrder, quantities, products));
+        return new SavedOrder(savedOrder, orderMapper.toSnapshot(savedOrder));
+    }
 
-        Double totalPrice = 0.0;
-        Set<OrderProduct> orderProducts = new HashSet<>();
-
-        for (OrderDto.OrderProductRequest item : orderDto.getItems()) {
-            Product product = productRepository.findByName(item.getProductName())
-                    .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
-
-            if (product.getQuantity() < item.getQuantity()) {
-                throw new ResourceNotFoundException("Not enough stock for product: " + product.getName());
+    /**
+     * Places several orders in one transaction, taking the stock for all of them with a single
+     * batched update when there is enough. Otherwise each order takes its own stock, and the ones
+     * that do not fit are rejected on their own. Returns one result per request, in request order.
+     * If the shared transaction fails as a whole, every order is retried in its own transaction, so
+     * one bad order never fails the others.
+     */
+    public List<OrderResult> createOrders(List<OrderRequest> requests) {
+        List<OrderResult> results;
+        try {
+            results = transactionRetry.execute(() -> placeOrders(requests));
+        } catch (RuntimeException e) {
+            log.warn("Batch of {} orders failed, placing them one by one: {}", requests.size(), e.getMessage());
+            return requests.stream().map(request -> {
+                try {
+                    return OrderResult.placed(createOrder(request.userId(), request.orderDto()), null);
+                } catch (RuntimeException error) {
+                    return OrderResult.rejected(error);
+                }
+            }).toList();
+        }
+        for (OrderResult result : results) {
+            if (result.error() == null) {
+                orderCache.put(result.order().getId(), result.snapshot());
+                cacheInvalidator.broadcast(EntityRef.order(result.order().getId()));
             }
+        }
+        log.info("Placed a batch of {} orders", requests.size());
+        return results;
+    }
 
-            product.setQuantity(product.getQuantity() - item.getQuantity());
-            productRepository.save(product);
-
-            OrderProduct orderProduct = new OrderProduct();
-            orderProduct.setId(new OrderProductId(savedOrder.getId(), product.getId()));
-            orderProduct.setOrder(savedOrder);
-            orderProduct.setProduct(product);
-            orderProduct.setQuantity(item.getQuantity());
-
-            orderProductRepository.save(orderProduct);
-            orderProducts.add(orderProduct);
+    private List<OrderResult> placeOrders(List<OrderRequest> requests) {
+        Map<Long, User> users = userRepository.findAllById(
+                requests.stream().map(OrderRequest::userId).collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        Set<String> names = new HashSet<>();
+        requests.forEach(request -> request.orderDto().getItems().forEach(item -> names.add(item.getProductName())));
+        Map<String, Product> products = productRepository.findAllByNameIn(names).stream()
+                .collect(Collectors.toMap(Product::getName, Function.identity()));
+
+        OrderResult[] results = new OrderResult[requests.size()];
+        List<Integer> accepted = new ArrayList<>();
+        List<Map<Product, Integer>> stocks = new ArrayList<>();
+        Map<Product, Integer> total = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            OrderRequest request = requests.get(i);
+            if (!users.containsKey(request.userId())) {
+                results[i] = OrderResult.rejected(new ResourceNotFoundException("User not found"));
+                continue;
+            }
+            Map<Product, Integer> stock = new LinkedHashMap<>();
+            for (Map.Entry<String, Integer> item : quantitiesByName(request.orderDto()).entrySet()) {
+                Product product = products.get(item.getKey());
+                if (product == null) {
+                    results[i] = OrderResult.rejected(
+                            new ResourceNotFoundException("Product with name " + item.getKey() + " not found"));
+                    break;
+                }
+                stock.put(product, item.getValue());
+            }
+            if (results[i] == null) {
+                accepted.add(i);
+                stocks.add(stock);
+                stock.forEach((product, quantity) -> total.merge(product, quantity, Integer::sum));
+            }
+        }
 
-            totalPrice += product.getPrice() * item.getQuantity();
+        // One batch for everyone; only if that falls short does each order take its own stock.
+        if (!total.isEmpty() && !stockStore.moveStock(total, Map.of()).isEmpty()) {
+            for (int k = 0; k < accepted.size(); k++) {
+                List<Product> outOfStock = stockStore.moveStock(stocks.get(k), Map.of());
+                if (!outOfStock.isEmpty()) {
+                    results[accepted.get(k)] = OrderResult.rejected(new ResourceNotFoundException(
+                            "Not enough stock for product: " + outOfStock.get(0).getName()));
+                }
+            }
         }
 
-        savedOrder.setTotalPrice(totalPrice);
-        savedOrder.setOrderProducts(orderProducts);
+        List<Order> orders = new ArrayList<>();
+        List<Integer> placed = new ArrayList<>();
+        Set<Product> touched = new HashSet<>();
+        for (int k = 0; k < accepted.size(); k++) {
+            int i = accepted.get(k);
+            if (results[i] != null) {
+                continue;
+            }
+            Order order = new Order();
+            order.setUser(users.get(requests.get(i).userId()));
+            order.setDate(LocalDate.now());
+            order.setTotalPrice(stocks.get(k).entrySet().stream()
+                    .mapToDouble(item -> item.getKey().getPrice() * item.getValue()).sum());
+            orders.add(order);
+            placed.add(k);
+            touched.addAll(stocks.get(k).keySet());
+        }
+        List<Order> savedOrders = orderRepository.saveAll(orders);
+        List<OrderProduct> lines = new ArrayList<>();
+        for (int j = 0; j < savedOrders.size(); j++) {
+            Order order = savedOrders.get(j);
+            Set<OrderProduct> orderLines = new HashSet<>();
+            stocks.get(placed.get(j)).forEach((product, quantity) -> orderLines.add(newLine(order, product, quantity)));
+            order.setOrderProducts(orderLines);
+            lines.addAll(orderLines);
+        }
+        orderProductRepository.saveAll(lines);
+        touched.forEach(product -> cacheInvalidator.invalidate(EntityRef.product(product.getId())));
 
-        log.info("Creating order with user id {}", order.getUser().getId());
-        Order finalOrder = orderRepository.save(savedOrder);
-        orderCache.put(finalOrder.getId(), finalOrder);
-        log.info("Order with id {} created and cached", savedOrder.getId());
-        return finalOrder;
+        for (int j = 0; j < savedOrders.size(); j++) {
+            Order order = savedOrders.get(j);
+            results[accepted.get(placed.get(j))] = OrderResult.placed(order, orderMapper.toSnapshot(order));
+        }
+        return List.of(results);
     }
 
-    public List<Order> getAllOrders() {
+    public List<OrderSnapshot> getAllOrders() {
         List<Order> orders = orderRepository.findAllWithProducts();
         if (orders.isEmpty()) {
             throw new ResourceNotFoundException(ORDER_NOT_FOUND);
         }
 
-        for (Order order : orders) {
-            if (orderCache.get(order.getId()) == null) {
-                orderCache.put(order.getId(), order);
-                log.info("Order with id {} added to cache", order.getId());
-            } else {
-                log.info("Order with id {} already exists", order.getId());
+        List<OrderSnapshot> snapshots = orders.stream().map(orderMapper::toSnapshot).toList();
+        for (OrderSnapshot order : snapshots) {
+            if (orderCache.get(order.id()) == null) {
+                orderCache.put(order.id(), order);
             }
         }
-        return orders;
+        return snapshots;
     }
 
-    public Order getOrderById(Long id) {
-        Order cachedOrder = orderCache.get(id);
-        if (cachedOrder != null) {
-            log.info("Order with id {} retrieved from cache", cachedOrder.getId());
-            return cachedOrder;
+    public OrderSnapshot getOrderById(Long id) {
+        OrderSnapshot order = orderCache.getOrLoad(id, orderLoader);
+        if (order == null) {
+            throw new ResourceNotFoundException(ORDER_NOT_FOUND);
         }
-
-        Order order = orderRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException(ORDER_NOT_FOUND));
-        orderCache.put(id, order);
-        log.info("Order with id {} retrieved from repository and cached", order.getId());
         return order;
     }
 
-    public List<Order> getUserOrders(Long userId) {
+    public List<OrderSnapshot> getUserOrders(Long userId) {
         List<Order> orders = orderRepository.findWithProductsByUserId(userId);
         if (orders.isEmpty()) {
             throw new ResourceNotFoundException(ORDER_NOT_FOUND);
         }
-        return orders;
+        return orders.stream().map(orderMapper::toSnapshot).toList();
     }
 
-    public Order getUserOrderById(Long userId, Long orderId) {
-        Order cachedOrder = orderCache.get(orderId);
-        if (cachedOrder != null) {
-            log.info("Order with id {} retrieved from cache", cachedOrder.getId());
-            return cachedOrder;
-        }
-
-        Order order = orderRepository.findWithProductsByIdAndUserId(orderId, userId);
-        if (order == null) {
+    public OrderSnapshot getUserOrderById(Long userId, Long orderId) {
+        OrderSnapshot order = orderCache.getOrLoad(orderId, orderLoader);
+        if (order == null || order.user() == null || !order.user().id().equals(userId)) {
             throw new ResourceNotFoundException(ORDER_NOT_FOUND);
         }
         return order;
     }
 
-    @Transactional
+    /**
+     * Applies only the difference between the stored lines and the request: stock moves by the net
+     * change per product, and lines are inserted, updated or deleted individually. Products whose
+     * quantity did not change are not touched, so they are neither locked nor invalidated.
+     */
     public Order updateOrder(Long userId, Long orderId, OrderDto orderDto) {
+        SavedOrder saved = transactionRetry.execute(() -> applyUpdate(userId, orderId, orderDto));
+        orderCache.put(saved.order().getId(), saved.snapshot());
+        cacheInvalidator.broadcast(EntityRef.order(saved.order().getId()));
+        log.info("Order with id {} updated and cached", saved.order().getId());
+        return saved.order();
+    }
+
+    private SavedOrder applyUpdate(Long userId, Long orderId, OrderDto orderDto) {
         Order order = orderRepository.findByUserIdAndId(userId, orderId);
         if (order == null) {
             throw new ResourceNotFoundException(ORDER_NOT_FOUND);
         }
 
-        for (OrderProduct op : order.getOrderProducts()) {
-            Product product = op.getProduct();
-            product.setQuantity(product.getQuantity() + op.getQuantity());
-            productRepository.save(product);
+        Map<Long, OrderProduct> removedLines = new HashMap<>();
+        for (OrderProduct line : order.getOrderProducts()) {
+            removedLines.put(line.getProduct().getId(), line);
         }
 
-        orderProductRepository.deleteAllByOrderId(orderId);
-        order.getOrderProducts().clear();
-
-        Double totalPrice = 0.0;
-        Set<OrderProduct> orderProducts = new HashSet<>();
-
-        for (OrderDto.OrderProductRequest item : orderDto.getItems()) {
-            Product product = productRepository.findByName(item.getProductName())
-                    .orElseThrow(() -> new ResourceNotFoundException(
-                            "Product with name " + item.getProductName() + " not found"));
-
-            if (product.getQuantity() < item.getQuantity()) {
-                throw new ResourceNotFoundException("Not enough stock for product: " + product.getName());
+        Map<String, Integer> quantities = quantitiesByName(orderDto);
+        Map<String, Product> products = findProductsByName(quantities.keySet());
+
+        Map<Product, Integer> taken = new LinkedHashMap<>();
+        Map<Product, Integer> returned = new LinkedHashMap<>();
+        List<OrderProduct> changedLines = new ArrayList<>();
+        Set<OrderProduct> lines = new HashSet<>();
+        double totalPrice = 0.0;
+        for (Map.Entry<String, Integer> item : quantities.entrySet()) {
+            Product product = products.get(item.getKey());
+            int quantity = item.getValue();
+            totalPrice += product.getPrice() * quantity;
+
+            OrderProduct line = removedLines.remove(product.getId());
+            int delta = line == null ? quantity : quantity - line.getQuantity();
+            if (delta > 0) {
+                taken.put(product, delta);
+            } else if (delta < 0) {
+                returned.put(product, -delta);
             }
+            if (line == null) {
+                line = newLine(order, product, quantity);
+                changedLines.add(line);
+            } else if (delta != 0) {
+                line.setQuantity(quantity);
+                changedLines.add(line);
+            }
+            lines.add(line);
+        }
+        for (OrderProduct line : removedLines.values()) {
+            returned.merge(line.getProduct(), line.getQuantity(), Integer::sum);
+        }
 
-            product.setQuantity(product.getQuantity() - item.getQuantity());
-            productRepository.save(product);
-
-            OrderProduct orderProduct = new OrderProduct();
-            orderProduct.setId(new OrderProductId(orderId, product.getId()));
-            orderProduct.setOrder(order);
-            orderProduct.setProduct(product);
-            orderProduct.setQuantity(item.getQuantity());
-
-            orderProductRepository.save(orderProduct);
-            orderProducts.add(orderProduct);
-
-            totalPrice += product.getPrice() * item.getQuantity();
+        moveStock(taken, returned);
+        if (!removedLines.isEmpty()) {
+            orderProductRepository.deleteAll(removedLines.values());
+        }
+        if (!changedLines.isEmpty()) {
+            orderProductRepository.saveAll(changedLines);
         }
 
-        order.setOrderProducts(orderProducts);
+        // A fresh set: the quantity takes part in OrderProduct.hashCode, so updated lines would be lost in the old one.
+        order.setOrderProducts(lines);
         order.setTotalPrice(totalPrice);
-
-        log.info("Update order with id {}", order.getId());
+        log.info("Update order with id {}: {} lines changed, {} removed", order.getId(),
+                changedLines.size(), removedLines.size());
         Order savedOrder = orderRepository.save(order);
-        orderCache.put(savedOrder.getId(), savedOrder);
-        log.info("Order with id {} updated and cached", order.getId());
-        return savedOrder;
+        return new SavedOrder(savedOrder, orderMapper.toSnapshot(savedOrder));
     }
 
     @Transactional
@@ -207,7 +333,100 @@ public class OrderService {
         orderProductRepository.deleteAllByOrderId(orderId);
         orderRepository.delete(order);
         orderCache.remove(order.getId());
+        cacheInvalidator.broadcast(EntityRef.order(order.getId()));
         log.info("Order with id {} deleted from cache", order.getId());
     }
 
+    // Fetches the user and the lines in one query so building the snapshot triggers no lazy loads.
+    private OrderSnapshot loadOrder(long id) {
+        Order order = orderRepository.findWithProductsById(id);
+        return order == null ? null : orderMapper.toSnapshot(order);
+    }
+
+    // Sums the quantities of items naming the same product, keeping the order of first appearance.
+    private static Map<String, Integer> quantitiesByName(OrderDto orderDto) {
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        for (OrderDto.OrderProductRequest item : orderDto.getItems()) {
+            quantities.merge(item.getProductName(), item.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    // Resolves every item with a single IN query instead of one lookup per item.
+    private Map<String, Product> findProductsByName(Collection<String> names) {
+        Map<String, Product> products = productRepository.findAllByNameIn(names).stream()
+                .collect(Collectors.toMap(Product::getName, Function.identity()));
+        for (String name : names) {
+            if (!products.containsKey(name)) {
+                throw new ResourceNotFoundException("Product with name " + name + " not found");
+            }
+        }
+        return products;
+    }
+
+    private double takeStock(Map<String, Integer> quantities, Map<String, Product> products) {
+        Map<Product, Integer> stock = new LinkedHashMap<>();
+        double totalPrice = 0.0;
+        for (Map.Entry<String, Integer> item : quantities.entrySet()) {
+            Product product = products.get(item.getKey());
+            stock.put(product, item.getValue());
+            totalPrice += product.getPrice() * item.getValue();
+        }
+        moveStock(stock, Map.of());
+        return totalPrice;
+    }
+
+    /**
+     * Takes and returns stock with conditional updates, in product id order so concurrent orders
+     * lock the rows in the same order. If any product runs short the exception rolls the whole
+     * transaction back, including the other changes.
+     */
+    private void moveStock(Map<Product, Integer> taken, Map<Product, Integer> returned) {
+        if (taken.isEmpty() && returned.isEmpty()) {
+            return;
+        }
+        List<Product> outOfStock = stockStore.moveStock(taken, returned);
+        if (!outOfStock.isEmpty()) {
+            throw new ResourceNotFoundException("Not enough stock for product: " + outOfStock.get(0).getName());
+        }
+        taken.keySet().forEach(product -> cacheInvalidator.invalidate(EntityRef.product(product.getId())));
+        returned.keySet().forEach(product -> cacheInvalidator.invalidate(EntityRef.product(product.getId())));
+    }
+
+    private Set<OrderProduct> saveLines(Order order, Map<String, Integer> quantities, Map<String, Product> products) {
+        Set<OrderProduct> lines = new HashSet<>();
+        quantities.forEach((name, quantity) -> lines.add(newLine(order, products.get(name), quantity)));
+        orderProductRepository.saveAll(lines);
+        return lines;
+    }
+
+    private static OrderProduct newLine(Order order, Product product, int quantity) {
+        OrderProduct line = new OrderProduct();
+        line.setId(new OrderProductId(order.getId(), product.getId()));
+        line.setOrder(order);
+        line.setProduct(product);
+        line.setQuantity(quantity);
+        return line;
+    }
+
+    // The snapshot is built inside the transaction, while lazy associations can still load.
+    private record SavedOrder(Order order, OrderSnapshot snapshot) {
+    }
+
+    public record OrderRequest(Long userId, OrderDto orderDto) {
+    }
+
+    // Either the placed order or the error that rejected it.
+    public record OrderResult(Order order, OrderSnapshot snapshot, RuntimeException error) {
+
+        static OrderResult placed(Order order, OrderSnapshot snapshot) {
+            return new OrderResult(order, snapshot, null);
+        }
+
+        static OrderResult rejected(RuntimeException error) {
+            return new OrderResult(null, null, error);
+        }
+
+    }
+
 }
@@ -1,20 +1,31 @@
 package com.oldvabik.warehousemanagement.service;
 
-import com.oldvabik.warehousemanagement.cache.ProductCache;
+import com.oldvabik.warehousemanagement.cache.CacheInvalidator;
+import com.oldvabik.warehousemanagement.cache.CollectionCache;
+import com.oldvabik.warehousemanagement.cache.EntityCache;
+import com.oldvabik.warehousemanagement.cache.EntityRef;
+import com.oldvabik.warehousemanagement.cache.EntityType;
 import com.oldvabik.warehousemanagement.dto.ProductDto;
 import com.oldvabik.warehousemanagement.exception.AlreadyExistsException;
 import com.oldvabik.warehousemanagement.exception.ResourceNotFoundException;
+import com.oldvabik.warehousemanagement.inventory.StockStore;
 import com.oldvabik.warehousemanagement.mapper.ProductMapper;
 import com.oldvabik.warehousemanagement.model.Category;
 import com.oldvabik.warehousemanagement.model.Product;
+import com.oldvabik.warehousemanagement.model.ProductSnapshot;
 import com.oldvabik.warehousemanagement.repository.CategoryRepository;
 import com.oldvabik.warehousemanagement.repository.ProductRepository;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.LongFunction;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.RequestBody;
 
 @Slf4j
@@ -24,16 +35,28 @@ public class ProductService {
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
     private final ProductMapper productMapper;
-    private final ProductCache productCache;
+    private final EntityCache<ProductSnapshot> productCache;
+    private final CollectionCache collectionCache;
+    private final CacheInvalidator cacheInvalidator;
+    private final StockStore stockStore;
+    private final LongFunction<ProductSnapshot> productLoader = this::loadProduct;
+
+    private static final Set<EntityType> PRODUCT_TABLES = EnumSet.of(EntityType.PRODUCT, EntityType.CATEGORY);
 
     public ProductService(ProductRepository productRepository,
                           CategoryRepository categoryRepository,
                           ProductMapper productMapper,
-                          ProductCache productCache) {
+                          EntityCache<ProductSnapshot> productCache,
+                          CollectionCache collectionCache,
+                          CacheInvalidator cacheInvalidator,
+                          StockStore stockStore) {
         this.productRepository = productRepository;
         this.categoryRepository = categoryRepository;
         this.productMapper = productMapper;
         this.productCache = productCache;
+        this.collectionCache = collectionCache;
+        this.cacheInvalidator = cacheInvalidator;
+        this.stockStore = stockStore;
     }
 
     public Product createProduct(ProductDto productDto) {
@@ -49,7 +72,8 @@ public class ProductService {
         }
         log.info("Creating new product: {}", product.getName());
         Product savedProduct = productRepository.save(product);
-        productCache.put(savedProduct.getId(), savedProduct);
+        productCache.put(savedProduct.getId(), productMapper.toSnapshot(savedProduct));
+        cacheInvalidator.broadcast(EntityRef.product(savedProduct.getId()));
         log.info("Product with id {} created and cached", savedProduct.getId());
         return savedProduct;
     }
@@ -67,58 +91,56 @@ public class ProductService {
             );
         }
 
-        List<String> duplicateNamesInDb = productsDto.stream()
-                .map(ProductDto::getName)
-                .filter(productRepository::existsByName)
-                .toList();
+        // One IN query for the names and one for the categories, however many products are sent.
+        List<String> names = productsDto.stream().map(ProductDto::getName).toList();
+        Set<String> existingNames = productRepository.findAllByNameIn(names).stream()
+                .map(Product::getName)
+                .collect(Collectors.toSet());
+        List<String> duplicateNamesInDb = names.stream().filter(existingNames::contains).toList();
         if (!duplicateNamesInDb.isEmpty()) {
             throw new AlreadyExistsException("Продукты с именами " + duplicateNamesInDb + " уже существуют");
         }
 
+        Set<String> categoryNames = productsDto.stream().map(ProductDto::getCategoryName).collect(Collectors.toSet());
+        Map<String, Category> categories = categoryRepository.findAllByNameIn(categoryNames).stream()
+                .collect(Collectors.toMap(Category::getName, Function.identity()));
         List<Product> products = productsDto.stream()
                 .map(productDto -> {
-                    Category category = categoryRepository.findByName(productDto.getCategoryName())
-                            .orElseThrow(() -> new ResourceNotFoundException(
-                                    "Категория не найдена: " + productDto.getCategoryName())
-                            );
+                    Category category = categories.get(productDto.getCategoryName());
+                    if (category == null) {
+                        throw new ResourceNotFoundException("Категория не найдена: " + productDto.getCategoryName());
+                    }
                     return productMapper.toEntity(productDto, category);
                 })
                 .toList();
 
-        return productRepository.saveAll(products);
+        List<Product> savedProducts = productRepository.saveAll(products);
+        savedProducts.forEach(product -> {
+            productCache.clearNegative(product.getId());
+            cacheInvalidator.broadcast(EntityRef.product(product.getId()));
+        });
+        return savedProducts;
     }
 
-    public List<Product> getProducts() {
-        List<Product> products = productRepository.findAll();
+    public List<ProductSnapshot> getProducts() {
+        List<ProductSnapshot> products = collectionCache.getOrLoad("products", PRODUCT_TABLES,
+                () -> productRepository.findAll().stream().map(productMapper::toSnapshot).toList());
         if (products.isEmpty()) {
             throw new ResourceNotFoundException("Products not found");
         }
-
-        for (Product product : products) {
-            if (productCache.get(product.getId()) == null) {
-                productCache.put(product.getId(), product);
-                log.info("Product with id {} added to cache", product.getId());
-            } else {
-                log.info("Product with id {} already exists in cache", product.getId());
-            }
-        }
         return products;
     }
 
-    public Product getProduct(Long id) {
-        Product cachedProduct = productCache.get(id);
-        if (cachedProduct != null) {
-            log.info("Product with id {} retrieved from cache", cachedProduct.getId());
-            return cachedProduct;
+    public ProductSnapshot getProduct(Long id) {
+        ProductSnapshot product = productCache.getOrLoad(id, productLoader);
+        if (product == null) {
+            throw new ResourceNotFoundException("Product with id " + id + " found");
         }
-
-        Product product = productRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Product with id " + id + " found"));
-        productCache.put(id, product);
-        log.info("Product with id {} retrieved from repository and cached", id);
         return product;
     }
 
+    // One transaction, so the product is edited as loaded and its stock is set in the same commit.
+    @Transactional
     public Product updateProduct(Long id, @RequestBody ProductDto productDto) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
@@ -135,10 +157,6 @@ public class ProductService {
             product.setPrice(productDto.getPrice());
         }
 
-        if (productDto.getQuantity() != null && !productDto.getQuantity().equals(product.getQuantity())) {
-            product.setQuantity(productDto.getQuantity());
-        }
-
         if (productDto.getCategoryName() != null
                 && (product.getCategory() == null
                 || !productDto.getCategoryName().equals(product.getCategory().getName()))) {
@@ -150,9 +168,14 @@ public class ProductService {
             }
             product.setCategory(optionalCategory.get());
         }
+        // Last, once nothing can reject the edit: the ledger's stock does not roll back.
+        if (productDto.getQuantity() != null && !productDto.getQuantity().equals(product.getQuantity())) {
+            stockStore.setQuantity(product, productDto.getQuantity());
+        }
         log.info("Product with id {}", product.getId());
         Product savedProduct = productRepository.save(product);
-        productCache.put(savedProduct.getId(), savedProduct);
+        productCache.put(savedProduct.getId(), productMapper.toSnapshot(savedProduct));
+        cacheInvalidator.invalidateDependents(EntityRef.product(savedProduct.getId()));
         log.info("Product with id {} updated and cached", savedProduct.getId());
         return savedProduct;
     }
@@ -163,7 +186,12 @@ public class ProductService {
         log.warn("Deleting product with id {}", product.getId());
         productRepository.delete(product);
         productCache.remove(product.getId());
+        cacheInvalidator.invalidateDependents(EntityRef.product(product.getId()));
         log.info("Product with id {} deleted from cache", product.getId());
     }
 
+    private ProductSnapshot loadProduct(long id) {
+        return productRepository.findById(id).map(productMapper::toSnapshot).orElse(null);
+    }
+
 }
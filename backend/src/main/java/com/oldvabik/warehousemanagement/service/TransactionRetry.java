@@ -0,0 +1,78 @@
+package com.oldvabik.warehousemanagement.service;
+
+import com.oldvabik.warehousemanagement.config.OrderProperties;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Runs an action in its own transaction and runs it again, after a jittered exponential backoff,
+ * when Postgres aborts it as a deadlock victim or for a serialization failure. The number of
+ * attempts is bounded; the last failure is rethrown.
+ */
+@Slf4j
+@Component
+public class TransactionRetry {
+
+    // serialization_failure and deadlock_detected
+    private static final Set<String> RETRYABLE_STATES = Set.of("40001", "40P01");
+
+    private final TransactionTemplate transactionTemplate;
+    private final OrderProperties.Retry retry;
+
+    public TransactionRetry(PlatformTransactionManager transactionManager, OrderProperties orderProperties) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retry = orderProperties.getRetry();
+    }
+
+    public <T> T execute(Supplier<T> action) {
+        // Inside a caller's transaction a failed attempt has already doomed that transaction, so do not retry.
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return action.get();
+        }
+        long backoff = retry.getInitialBackoff().toMillis();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (RuntimeException e) {
+                if (attempt >= retry.getMaxAttempts() || !isRetryable(e)) {
+                    throw e;
+                }
+                long sleep = ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1);
+                log.warn("Transaction attempt {} failed with {}, retrying in {} ms", attempt, e.getClass().getSimpleName(),
+                        sleep);
+                pause(sleep, e);
+                backoff = Math.min(backoff * 2, retry.getMaxBackoff().toMillis());
+            }
+        }
+    }
+
+    static boolean isRetryable(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof PessimisticLockingFailureException) {
+                return true;
+            }
+            if (cause instanceof SQLException sqlException && RETRYABLE_STATES.contains(sqlException.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void pause(long millis, RuntimeException failure) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw failure;
+        }
+    }
+
+}
@@ -1,14 +1,22 @@
 package com.oldvabik.warehousemanagement.service;
 
-import com.oldvabik.warehousemanagement.cache.UserCache;
+import com.oldvabik.warehousemanagement.cache.CacheInvalidator;
+import com.oldvabik.warehousemanagement.cache.CollectionCache;
+import com.oldvabik.warehousemanagement.cache.EntityCache;
+import com.oldvabik.warehousemanagement.cache.EntityRef;
+import com.oldvabik.warehousemanagement.cache.EntityType;
 import com.oldvabik.warehousemanagement.dto.UserDto;
 import com.oldvabik.warehousemanagement.exception.AlreadyExistsException;
 import com.oldvabik.warehousemanagement.exception.ResourceNotFoundException;
 import com.oldvabik.warehousemanagement.mapper.UserMapper;
 import com.oldvabik.warehousemanagement.model.User;
+import com.oldvabik.warehousemanagement.model.UserSnapshot;
 import com.oldvabik.warehousemanagement.repository.UserRepository;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.LongFunction;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
@@ -18,14 +26,23 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final UserMapper userMapper;
-    private final UserCache userCache;
+    private final EntityCache<UserSnapshot> userCache;
+    private final CollectionCache collectionCache;
+    private final CacheInvalidator cacheInvalidator;
+    private final LongFunction<UserSnapshot> userLoader = this::loadUser;
+
+    private static final Set<EntityType> USER_TABLES = EnumSet.of(EntityType.USER);
 
     public UserService(UserRepository userRepository,
                        UserMapper userMapper,
-                       UserCache userCache) {
+                       EntityCache<UserSnapshot> userCache,
+                       CollectionCache collectionCache,
+                       CacheInvalidator cacheInvalidator) {
         this.userRepository = userRepository;
         this.userMapper = userMapper;
         this.userCache = userCache;
+        this.collectionCache = collectionCache;
+        this.cacheInvalidator = cacheInvalidator;
     }
 
     public User createUser(UserDto userDto) {
@@ -35,39 +52,26 @@ public class UserService {
         log.info("Creating new user: {} {}", userDto.getFirstName(), userDto.getLastName());
         User user = userMapper.toEntity(userDto);
         User savedUser = userRepository.save(user);
-        userCache.put(savedUser.getId(), savedUser);
+        userCache.put(savedUser.getId(), userMapper.toSnapshot(savedUser));
+        cacheInvalidator.broadcast(EntityRef.user(savedUser.getId()));
         log.info("User with id {} created and cached", savedUser.getId());
         return savedUser;
     }
 
-    public List<User> getUsers() {
-        List<User> users = userRepository.findAll();
+    public List<UserSnapshot> getUsers() {
+        List<UserSnapshot> users = collectionCache.getOrLoad("users", USER_TABLES,
+                () -> userRepository.findAll().stream().map(userMapper::toSnapshot).toList());
         if (users.isEmpty()) {
             throw new ResourceNotFoundException("Users not found");
         }
-
-        for (User user : users) {
-            if (userCache.get(user.getId()) == null) {
-                userCache.put(user.getId(), user);
-                log.info("User with id {} added to cache", user.getId());
-            } else {
-                log.info("User with id {} already exists in cache", user.getId());
-            }
-        }
         return users;
     }
 
-    public User getUserById(Long id) {
-        User cachedUser = userCache.get(id);
-        if (cachedUser != null) {
-            log.info("User with id {} retrieved from cache", id);
-            return cachedUser;
+    public UserSnapshot getUserById(Long id) {
+        UserSnapshot user = userCache.getOrLoad(id, userLoader);
+        if (user == null) {
+            throw new ResourceNotFoundException("User not found");
         }
-
-        User user = userRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
-        userCache.put(user.getId(), user);
-        log.info("User with id {} retrieved from repository", id);
         return user;
     }
 
@@ -96,7 +100,8 @@ public class UserService {
         }
         log.info("Updating user with id {}", user.getId());
         User savedUser = userRepository.save(user);
-        userCache.put(savedUser.getId(), savedUser);
+        userCache.put(savedUser.getId(), userMapper.toSnapshot(savedUser));
+        cacheInvalidator.invalidateDependents(EntityRef.user(savedUser.getId()));
         log.info("User with id {} updated and cached", savedUser.getId());
         return savedUser;
     }
@@ -107,7 +112,12 @@ public class UserService {
         log.warn("Deleting user with id {}", user.getId());
         userRepository.delete(user);
         userCache.remove(user.getId());
+        cacheInvalidator.invalidateDependents(EntityRef.user(user.getId()));
         log.info("User with id {} deleted from cache", user.getId());
     }
 
+    private UserSnapshot loadUser(long id) {
+        return userRepository.findById(id).map(userMapper::toSnapshot).orElse(null);
+    }
+
 }
@@ -0,0 +1,33 @@
+-- Moves id generation from IDENTITY columns to the pooled *_seq sequences the entities use
+-- (allocationSize = 50). Runs on every start through spring.sql.init, before Hibernate, so
+-- ddl-auto=update finds the sequences in place instead of creating them at 1 under existing rows.
+--
+-- A sequence is only moved when the table holds an id at or past its last value, which happens
+-- once, right after the switch from IDENTITY. It is then set a whole block past both that id and
+-- its last value, so it never hands out again a block a running node has already taken. Starts
+-- are serialized with an advisory lock, so two nodes starting together cannot interleave.
+
+DO $$
+DECLARE
+    t text;
+    seq text;
+    max_id bigint;
+    seq_value bigint;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('sequence-ids'));
+    FOREACH t IN ARRAY ARRAY['products', 'categories', 'users', 'orders'] LOOP
+        seq := t || '_seq';
+        EXECUTE format('CREATE SEQUENCE IF NOT EXISTS %I INCREMENT BY 50', seq);
+        EXECUTE format('ALTER SEQUENCE %I INCREMENT BY 50', seq);
+        IF to_regclass(t) IS NULL THEN
+            -- Fresh database: Hibernate creates the table and the sequence starts from 1.
+            CONTINUE;
+        END IF;
+        EXECUTE format('ALTER TABLE %I ALTER COLUMN id DROP IDENTITY IF EXISTS', t);
+        EXECUTE format('SELECT COALESCE(MAX(id), 0) FROM %I', t) INTO max_id;
+        EXECUTE format('SELECT last_value FROM %I', seq) INTO seq_value;
+        IF max_id >= seq_value THEN
+            PERFORM setval(seq, max_id + 50, true);
+        END IF;
+    END LOOP;
+END $$
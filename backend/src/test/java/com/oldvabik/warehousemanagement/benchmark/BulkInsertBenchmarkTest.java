@@ -0,0 +1,104 @@
+package com.oldvabik.warehousemanagement.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.oldvabik.warehousemanagement.dto.ProductDto;
+import com.oldvabik.warehousemanagement.model.Category;
+import com.oldvabik.warehousemanagement.repository.CategoryRepository;
+import com.oldvabik.warehousemanagement.repository.ProductRepository;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.stream.IntStream;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+/**
+ * Posts 1000 products to {@code /api/products/bulk} against a real Postgres and reports how many
+ * statements it took. With IDENTITY ids that was one insert per product plus a name and a category
+ * lookup each (~3000 round trips); with pooled sequences and batching it is a few dozen.
+ * Only runs when {@code DB_URL} is set.
+ */
+@Slf4j
+@SpringBootTest(properties = {
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "spring.jpa.show-sql=false",
+    "cache.persistence.enabled=false"
+})
+@AutoConfigureMockMvc
+@EnabledIfEnvironmentVariable(named = "DB_URL", matches = ".+")
+class BulkInsertBenchmarkTest {
+
+    private static final int PRODUCTS = 1000;
+    private static final String PREFIX = "bulk-benchmark-";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @AfterEach
+    void cleanUp() {
+        productRepository.deleteAllInBatch(productRepository.findAllByNameIn(names()));
+        categoryRepository.findByName(PREFIX + "category").ifPresent(categoryRepository::delete);
+    }
+
+    @Test
+    void bulkCreate_usesBatchedInserts() throws Exception {
+        Category category = new Category();
+        category.setName(PREFIX + "category");
+        categoryRepository.save(category);
+
+        List<ProductDto> products = names().stream().map(name -> {
+            ProductDto dto = new ProductDto();
+            dto.setName(name);
+            dto.setPrice(1.0);
+            dto.setQuantity(10);
+            dto.setCategoryName(category.getName());
+            return dto;
+        }).toList();
+        String body = objectMapper.writeValueAsString(products);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        long start = System.nanoTime();
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/products/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        long statements = statistics.getPrepareStatementCount();
+        log.info("Bulk insert of {} products: {} statements, {} entities inserted, {} ms",
+                PRODUCTS, statements, statistics.getEntityInsertCount(), elapsedMillis);
+
+        Assertions.assertEquals(PRODUCTS, statistics.getEntityInsertCount());
+        Assertions.assertTrue(statements < PRODUCTS / 10,
+                "expected batched inserts, got " + statements + " statements");
+    }
+
+    private static List<String> names() {
+        return IntStream.range(0, PRODUCTS).mapToObj(i -> PREFIX + i).toList();
+    }
+}
@@ -0,0 +1,154 @@
+package com.oldvabik.warehousemanagement.benchmark;
+
+import com.oldvabik.warehousemanagement.dto.OrderDto;
+import com.oldvabik.warehousemanagement.exception.ResourceNotFoundException;
+import com.oldvabik.warehousemanagement.model.Category;
+import com.oldvabik.warehousemanagement.model.Product;
+import com.oldvabik.warehousemanagement.model.User;
+import com.oldvabik.warehousemanagement.repository.CategoryRepository;
+import com.oldvabik.warehousemanagement.repository.ProductRepository;
+import com.oldvabik.warehousemanagement.repository.UserRepository;
+import com.oldvabik.warehousemanagement.service.OrderService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Places many orders at once whose carts share the same products in shuffled order, more than the
+ * stock can serve. Every order must either take one of each product or nothing: the remaining
+ * stock has to equal the initial stock minus the orders that went through, with no deadlock
+ * surfacing to the caller. Only runs when {@code DB_URL} is set.
+ */
+@Slf4j
+@SpringBootTest(properties = {"spring.jpa.show-sql=false", "cache.persistence.enabled=false"})
+@EnabledIfEnvironmentVariable(named = "DB_URL", matches = ".+")
+class StockReservationStressTest {
+
+    private static final String PREFIX = "stress-";
+    private static final int PRODUCTS = 5;
+    private static final int STOCK = 200;
+    private static final int THREADS = 16;
+    private static final int ORDERS_PER_THREAD = 25;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private Category category;
+    private final List<Product> products = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        if (user != null) {
+            jdbcTemplate.update("DELETE FROM order_product WHERE order_id IN (SELECT id FROM orders WHERE user_id = ?)",
+                    user.getId());
+            jdbcTemplate.update("DELETE FROM orders WHERE user_id = ?", user.getId());
+            userRepository.deleteById(user.getId());
+        }
+        productRepository.deleteAllInBatch(products);
+        if (category != null) {
+            categoryRepository.deleteById(category.getId());
+        }
+    }
+
+    @Test
+    void overlappingCarts_loseNoStock() throws Exception {
+        user = new User();
+        user.setFirstName("Stress");
+        user.setLastName("Test");
+        user.setEmail(PREFIX + System.nanoTime() + "@example.com");
+        user.setAge(30);
+        user = userRepository.save(user);
+        category = new Category();
+        category.setName(PREFIX + "category-" + System.nanoTime());
+        category = categoryRepository.save(category);
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = new Product();
+            product.setName(PREFIX + category.getId() + "-" + i);
+            product.setPrice(1.0);
+            product.setQuantity(STOCK);
+            product.setCategory(category);
+            products.add(productRepository.save(product));
+        }
+
+        AtomicInteger placed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < ORDERS_PER_THREAD; i++) {
+                    try {
+                        orderService.createOrder(user.getId(), shuffledCart());
+                        placed.incrementAndGet();
+                    } catch (ResourceNotFoundException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            // Any other exception, such as a deadlock that outlived the retries, fails the test here.
+            future.get(2, TimeUnit.MINUTES);
+        }
+        pool.shutdown();
+
+        log.info("{} orders placed, {} rejected for stock", placed.get(), rejected.get());
+        Assertions.assertEquals(THREADS * ORDERS_PER_THREAD, placed.get() + rejected.get());
+        Assertions.assertEquals(STOCK, placed.get(), "every unit should have been sold exactly once");
+        for (Product product : products) {
+            Integer quantity = jdbcTemplate.queryForObject("SELECT quantity FROM products WHERE id = ?",
+                    Integer.class, product.getId());
+            Assertions.assertEquals(STOCK - placed.get(), quantity);
+        }
+        Integer lines = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM order_product op JOIN orders o ON o.id = op.order_id WHERE o.user_id = ?",
+                Integer.class, user.getId());
+        Assertions.assertEquals(placed.get() * PRODUCTS, lines);
+    }
+
+    private OrderDto shuffledCart() {
+        List<Product> cart = new ArrayList<>(products);
+        Collections.shuffle(cart, ThreadLocalRandom.current());
+        OrderDto orderDto = new OrderDto();
+        for (Product product : cart) {
+            OrderDto.OrderProductRequest item = new OrderDto.OrderProductRequest();
+            item.setProductName(product.getName());
+            item.setQuantity(1);
+            orderDto.getItems().add(item);
+        }
+        return orderDto;
+    }
+
+}
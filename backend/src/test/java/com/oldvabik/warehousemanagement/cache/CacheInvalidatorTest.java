@@ -0,0 +1,93 @@
+package com.oldvabik.warehousemanagement.cache;
+
+import com.oldvabik.warehousemanagement.config.CacheProperties;
+import com.oldvabik.warehousemanagement.model.CategorySnapshot;
+import com.oldvabik.warehousemanagement.model.ProductSnapshot;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class CacheInvalidatorTest {
+
+    private final InvalidationTransport transport = new InMemoryInvalidationTransport();
+    private final Node first = new Node();
+    private final Node second = new Node();
+
+    private class Node {
+        final ProductCache products = new ProductCache(new CacheProperties());
+        final CollectionCache collections = new CollectionCache(new CacheProperties());
+        final CacheInvalidator invalidator = new CacheInvalidator(
+                new CacheRegistry(List.of(products)), collections, Optional.of(transport), new CacheProperties());
+    }
+
+    private static ProductSnapshot product(long id, long categoryId) {
+        return new ProductSnapshot(id, "Product " + id, 10.0, 1, new CategorySnapshot(categoryId, "Category"));
+    }
+
+    @Test
+    void invalidateDependents_dropsEntityAndDependentsOnOtherNodes() {
+        first.products.put(1L, product(1L, 7L));
+        second.products.put(1L, product(1L, 7L));
+        second.products.put(2L, product(2L, 8L));
+
+        first.invalidator.invalidateDependents(EntityRef.product(1L));
+
+        Assertions.assertNotNull(first.products.get(1L));
+        Assertions.assertNull(second.products.get(1L));
+        Assertions.assertNotNull(second.products.get(2L));
+
+        first.invalidator.invalidateDependents(EntityRef.category(8L));
+
+        Assertions.assertNull(second.products.get(2L));
+    }
+
+    @Test
+    void broadcast_clearsNegativeEntryOnOtherNodes() {
+        CacheSpec spec = new CacheSpec(10);
+        spec.setNegativeCapacity(16);
+        CacheProperties properties = new CacheProperties();
+        properties.setProducts(spec);
+        ProductCache remote = new ProductCache(properties);
+        new CacheInvalidator(new CacheRegistry(List.of(remote)), new CollectionCache(properties),
+                Optional.of(transport), new CacheProperties());
+        AtomicInteger loads = new AtomicInteger();
+
+        Assertions.assertNull(remote.getOrLoad(3L, id -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+        first.invalidator.broadcast(EntityRef.product(3L));
+        ProductSnapshot loaded = remote.getOrLoad(3L, id -> {
+            loads.incrementAndGet();
+            return product(id, 7L);
+        });
+
+        Assertions.assertEquals(3L, loaded.id());
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    @Test
+    void broadcast_outdatesCollectionsOnEveryNode() {
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<List<Integer>> loader = () -> List.of(loads.incrementAndGet());
+        first.collections.getOrLoad("products", Set.of(EntityType.PRODUCT), loader);
+        second.collections.getOrLoad("products", Set.of(EntityType.PRODUCT), loader);
+
+        first.invalidator.broadcast(EntityRef.product(5L));
+
+        Assertions.assertEquals(List.of(3), first.collections.getOrLoad("products", Set.of(EntityType.PRODUCT), loader));
+        Assertions.assertEquals(List.of(4), second.collections.getOrLoad("products", Set.of(EntityType.PRODUCT), loader));
+    }
+
+    @Test
+    void message_roundTripsThroughPayload() {
+        InvalidationMessage message = new InvalidationMessage("node|a", EntityRef.order(42L));
+
+        Assertions.assertEquals(message, InvalidationMessage.decode(message.encode()));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> InvalidationMessage.decode("garbage"));
+    }
+}
@@ -0,0 +1,43 @@
+package com.oldvabik.warehousemanagement.cache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CacheSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void write_roundTripsKeysPerCache() throws IOException {
+        Path path = directory.resolve("snapshot.txt");
+        CacheSnapshot snapshot = new CacheSnapshot(Map.of(
+                "products", List.of(new HotKey(7L, 12), new HotKey(3L, 1)),
+                "users", List.of(new HotKey(1L, 4))));
+
+        snapshot.write(path);
+        snapshot.write(path);
+        CacheSnapshot read = CacheSnapshot.read(path);
+
+        Assertions.assertEquals(snapshot.keysOf("products"), read.keysOf("products"));
+        Assertions.assertEquals(snapshot.keysOf("users"), read.keysOf("users"));
+        Assertions.assertEquals(List.of(), read.keysOf("orders"));
+        try (var files = Files.list(directory)) {
+            Assertions.assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void read_rejectsMalformedLine() throws IOException {
+        Path path = directory.resolve("snapshot.txt");
+        Files.writeString(path, "products 7 12\nproducts seven\n");
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> CacheSnapshot.read(path));
+    }
+}
@@ -0,0 +1,77 @@
+package com.oldvabik.warehousemanagement.cache;
+
+import com.oldvabik.warehousemanagement.config.CacheProperties;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class CollectionCacheTest {
+
+    private static final Set<EntityType> PRODUCT_TABLES = Set.of(EntityType.PRODUCT, EntityType.CATEGORY);
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private List<Integer> load() {
+        return List.of(loads.incrementAndGet());
+    }
+
+    @Test
+    void getOrLoad_servesCachedResultUntilTableChanges() {
+        CollectionCache cache = new CollectionCache(new CacheProperties());
+
+        Assertions.assertEquals(List.of(1), cache.getOrLoad("products", PRODUCT_TABLES, this::load));
+        Assertions.assertEquals(List.of(1), cache.getOrLoad("products", PRODUCT_TABLES, this::load));
+
+        cache.invalidate(EntityType.USER);
+        Assertions.assertEquals(List.of(1), cache.getOrLoad("products", PRODUCT_TABLES, this::load));
+
+        cache.invalidate(EntityType.CATEGORY);
+        Assertions.assertEquals(List.of(2), cache.getOrLoad("products", PRODUCT_TABLES, this::load));
+    }
+
+    @Test
+    void getOrLoad_reloadsWhenTableChangesDuringLoad() {
+        CollectionCache cache = new CollectionCache(new CacheProperties());
+
+        cache.getOrLoad("products", PRODUCT_TABLES, () -> {
+            cache.invalidate(EntityType.PRODUCT);
+            return load();
+        });
+
+        Assertions.assertEquals(List.of(2), cache.getOrLoad("products", PRODUCT_TABLES, this::load));
+    }
+
+    @Test
+    void getOrLoad_copiesLoadedList() {
+        CollectionCache cache = new CollectionCache(new CacheProperties());
+        List<Integer> source = new ArrayList<>(List.of(1));
+
+        List<Integer> result = cache.getOrLoad("products", PRODUCT_TABLES, () -> source);
+        source.add(2);
+
+        Assertions.assertEquals(List.of(1), cache.getOrLoad("products", PRODUCT_TABLES, () -> source));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> result.add(3));
+    }
+
+    @Test
+    void getOrLoad_evictsLeastRecentlyReadBeyondCapacity() {
+        CacheProperties properties = new CacheProperties();
+        properties.setCollectionCapacity(2);
+        CollectionCache cache = new CollectionCache(properties);
+
+        cache.getOrLoad("products:category:1", PRODUCT_TABLES, this::load);
+        cache.getOrLoad("products:category:2", PRODUCT_TABLES, this::load);
+        cache.getOrLoad("products:category:1", PRODUCT_TABLES, this::load);
+        cache.getOrLoad("products:category:3", PRODUCT_TABLES, this::load);
+
+        Assertions.assertEquals(List.of(3), cache.getOrLoad("products:category:3", PRODUCT_TABLES, this::load));
+        Assertions.assertEquals(List.of(1), cache.getOrLoad("products:category:1", PRODUCT_TABLES, this::load));
+        Assertions.assertEquals(List.of(4), cache.getOrLoad("products:category:2", PRODUCT_TABLES, this::load));
+
+        cache.clear();
+        Assertions.assertEquals(List.of(5), cache.getOrLoad("products:category:1", PRODUCT_TABLES, this::load));
+    }
+}
@@ -0,0 +1,85 @@
+package com.oldvabik.warehousemanagement.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class EntryTableTest {
+
+    private final EntryTable<String> table = new EntryTable<>();
+
+    @Test
+    void putGetRemove_reusesSlotOfRemovedKey() {
+        Entry<String> first = new Entry<>(42L, "a");
+        table.put(first);
+        Assertions.assertSame(first, table.get(42L));
+        Assertions.assertNull(table.get(43L));
+
+        table.remove(42L);
+        Assertions.assertNull(table.get(42L));
+
+        Entry<String> second = new Entry<>(42L, "b");
+        table.put(second);
+        Assertions.assertSame(second, table.get(42L));
+    }
+
+    @Test
+    void put_growsAndDropsTombstones() {
+        for (long key = -1000; key < 1000; key++) {
+            table.put(new Entry<>(key, "v" + key));
+            if (key % 3 == 0) {
+                table.remove(key);
+            }
+        }
+        for (long key = -1000; key < 1000; key++) {
+            Entry<String> entry = table.get(key);
+            if (key % 3 == 0) {
+                Assertions.assertNull(entry);
+            } else {
+                Assertions.assertEquals("v" + key, entry.value);
+            }
+        }
+
+        List<Long> keys = new ArrayList<>();
+        table.forEach(entry -> keys.add(entry.key));
+        Assertions.assertEquals(1333, keys.size());
+
+        table.clear();
+        Assertions.assertNull(table.get(1L));
+    }
+
+    @Test
+    void get_neverReturnsEntryOfAnotherKeyWhileWriterChurns() throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (running.get()) {
+                for (long key = 0; key < 256; key++) {
+                    Entry<String> entry = table.get(key);
+                    if (entry != null && entry.key != key) {
+                        failure.set("Key " + key + " resolved to entry " + entry.key);
+                    }
+                }
+            }
+        });
+        reader.start();
+        for (int round = 0; round < 2000; round++) {
+            for (long key = 0; key < 256; key++) {
+                table.put(new Entry<>(key, "v"));
+            }
+            for (long key = round % 2; key < 256; key += 2) {
+                table.remove(key);
+            }
+            if (round % 100 == 0) {
+                table.clear();
+            }
+        }
+        running.set(false);
+        reader.join();
+
+        Assertions.assertNull(failure.get());
+    }
+}
@@ -0,0 +1,432 @@
+package com.oldvabik.warehousemanagement.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class LfuCacheTest {
+
+    private static class TestCache extends LfuCache<String> {
+        TestCache(int capacity) {
+            super("test", capacity);
+        }
+
+        TestCache(CacheSpec spec) {
+            super("test", spec);
+        }
+
+        @Override
+        protected long weigh(String value) {
+            return value.length();
+        }
+    }
+
+    @Test
+    void put_evictsLeastFrequentlyUsed() {
+        TestCache cache = new TestCache(2);
+        cache.put(1L, "one");
+        cache.put(2L, "two");
+        cache.get(1L);
+
+        cache.put(3L, "three");
+        cache.put(3L, "three");
+
+        Assertions.assertEquals("one", cache.get(1L));
+        Assertions.assertNull(cache.get(2L));
+        Assertions.assertEquals("three", cache.get(3L));
+    }
+
+    @Test
+    void restoreFrequency_keepsRestoredEntryOverNewcomers() {
+        TestCache cache = new TestCache(2);
+        cache.put(1L, "one");
+        cache.put(2L, "two");
+        cache.restoreFrequency(1L, 5);
+
+        cache.put(3L, "three");
+        cache.put(3L, "three");
+
+        Assertions.assertEquals("one", cache.get(1L));
+        Assertions.assertNull(cache.get(2L));
+        Assertions.assertEquals(6, cache.hotKeys().get(0).frequency());
+    }
+
+    @Test
+    void put_breaksFrequencyTiesByRecency() {
+        TestCache cache = new TestCache(3);
+        cache.put(1L, "one");
+        cache.put(2L, "two");
+        cache.put(3L, "three");
+        cache.get(2L);
+        cache.get(1L);
+        cache.get(3L);
+
+        for (int i = 0; i < 3; i++) {
+            cache.put(4L, "four");
+        }
+
+        Assertions.assertNull(cache.get(2L));
+        Assertions.assertEquals("one", cache.get(1L));
+        Assertions.assertEquals("three", cache.get(3L));
+        Assertions.assertEquals("four", cache.get(4L));
+    }
+
+    @Test
+    void put_existingKeyReplacesValueWithoutEviction() {
+        TestCache cache = new TestCache(2);
+        cache.put(1L, "one");
+        cache.put(2L, "two");
+
+        cache.put(1L, "uno");
+
+        Assertions.assertEquals("uno", cache.get(1L));
+        Assertions.assertEquals("two", cache.get(2L));
+    }
+
+    @Test
+    void remove_andClear_dropEntries() {
+        TestCache cache = new TestCache(2);
+        cache.put(1L, "one");
+        cache.put(2L, "two");
+
+        cache.remove(1L);
+        Assertions.assertNull(cache.get(1L));
+        cache.put(3L, "three");
+        Assertions.assertEquals("two", cache.get(2L));
+
+        cache.clear();
+        Assertions.assertNull(cache.get(2L));
+        Assertions.assertNull(cache.get(3L));
+    }
+
+    @Test
+    void put_rejectsNewcomerLessPopularThanVictim() {
+        TestCache cache = new TestCache(2);
+        cache.put(1L, "one");
+        cache.put(2L, "two");
+        for (int i = 0; i < 3; i++) {
+            cache.get(1L);
+            cache.get(2L);
+        }
+
+        cache.put(3L, "three");
+
+        Assertions.assertNull(cache.get(3L));
+        Assertions.assertEquals("one", cache.get(1L));
+        Assertions.assertEquals("two", cache.get(2L));
+    }
+
+    @Test
+    void aging_letsStaleHotEntryBeEvicted() {
+        TestCache cache = new TestCache(2);
+        cache.put(1L, "stale");
+        for (int i = 0; i < 40; i++) {
+            cache.get(1L);
+        }
+
+        for (long id = 10; id < 60; id++) {
+            for (int i = 0; i < 6; i++) {
+                if (cache.get(id) == null) {
+                    cache.put(id, "value-" + id);
+                }
+            }
+        }
+
+        Assertions.assertNull(cache.get(1L));
+    }
+
+    @Test
+    void resize_shrinkEvictsDownToNewCapacity() {
+        TestCache cache = new TestCache(100);
+        for (long id = 0; id < 100; id++) {
+            cache.put(id, "value-" + id);
+        }
+
+        cache.resize(10, 0);
+
+        Assertions.assertEquals(10, cache.getCapacity());
+        Assertions.assertTrue(cache.size() <= 10);
+    }
+
+    @Test
+    void resize_restripesAndKeepsEntries() {
+        TestCache cache = new TestCache(3);
+        cache.put(1L, "one");
+        cache.put(2L, "two");
+        cache.put(3L, "three");
+        cache.get(3L);
+        Assertions.assertEquals(1, cache.segmentCount());
+
+        cache.resize(1000, 0);
+        Assertions.assertEquals(16, cache.segmentCount());
+        Assertions.assertEquals("one", cache.get(1L));
+        Assertions.assertEquals("three", cache.get(3L));
+        for (long id = 4; id < 500; id++) {
+            cache.put(id, "value-" + id);
+        }
+        Assertions.assertEquals(499, cache.size());
+
+        cache.resize(2, 0);
+        Assertions.assertEquals(1, cache.segmentCount());
+        Assertions.assertEquals(2, cache.size());
+        cache.remove(3L);
+        Assertions.assertNull(cache.get(3L));
+        Assertions.assertTrue(cache.size() <= 1);
+    }
+
+    @Test
+    void put_respectsMaxWeight() {
+        TestCache cache = new TestCache(new CacheSpec(10, 10));
+        cache.put(1L, "aaaa");
+        cache.put(2L, "bbbb");
+        cache.put(3L, "this value is too heavy");
+
+        Assertions.assertNull(cache.get(3L));
+        Assertions.assertEquals(8, cache.weight());
+
+        cache.resize(10, 4);
+        Assertions.assertEquals(1, cache.size());
+        Assertions.assertTrue(cache.weight() <= 4);
+    }
+
+    @Test
+    void stats_countHitsMissesLoadsAndEvictions() {
+        TestCache cache = new TestCache(1);
+
+        Assertions.assertEquals("one", cache.getOrLoad(1L, id -> "one"));
+        Assertions.assertEquals("one", cache.getOrLoad(1L, id -> "never loaded"));
+        Assertions.assertNull(cache.getOrLoad(2L, id -> null));
+        for (int i = 0; i < 3; i++) {
+            cache.put(3L, "three");
+        }
+
+        CacheStats stats = cache.stats();
+        Assertions.assertEquals(1, stats.getHitCount());
+        Assertions.assertEquals(2, stats.getMissCount());
+        Assertions.assertEquals(1, stats.getLoadSuccessCount());
+        Assertions.assertEquals(1, stats.getLoadFailureCount());
+        Assertions.assertEquals(4, stats.getPutCount());
+        Assertions.assertEquals(2, stats.getRejectionCount());
+        Assertions.assertEquals(1, stats.getEvictionCount());
+        Assertions.assertEquals(1, stats.getSize());
+
+        cache.resetStats();
+        Assertions.assertEquals(0, cache.stats().getHitCount());
+    }
+
+    @Test
+    void getOrLoad_concurrentMissesShareOneLoad() throws Exception {
+        TestCache cache = new TestCache(10);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> cache.getOrLoad(1L, id -> {
+                    loads.incrementAndGet();
+                    awaitQuietly(release);
+                    return "one";
+                })));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<String> future : futures) {
+                Assertions.assertEquals("one", future.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Assertions.assertEquals(1, loads.get());
+    }
+
+    @Test
+    void getOrLoad_doesNotCacheValueLoadedBeforeConcurrentWrite() throws Exception {
+        TestCache cache = new TestCache(10);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> stale = executor.submit(() -> cache.getOrLoad(1L, id -> {
+                loading.countDown();
+                awaitQuietly(release);
+                return "old";
+            }));
+            Assertions.assertTrue(loading.await(5, TimeUnit.SECONDS));
+            cache.put(1L, "new");
+            release.countDown();
+
+            Assertions.assertEquals("old", stale.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+
+        Assertions.assertEquals("new", cache.get(1L));
+    }
+
+    @Test
+    void get_treatsExpiredEntryAsAbsent() {
+        CacheSpec spec = new CacheSpec(10);
+        spec.setExpireAfterWrite(Duration.ofMinutes(5));
+        TestCache cache = new TestCache(spec);
+        AtomicLong now = new AtomicLong();
+        cache.setTicker(now::get);
+        cache.put(1L, "one");
+
+        now.addAndGet(Duration.ofMinutes(4).toNanos());
+        Assertions.assertEquals("one", cache.get(1L));
+
+        now.addAndGet(Duration.ofMinutes(2).toNanos());
+        Assertions.assertNull(cache.get(1L));
+        Assertions.assertEquals(0, cache.size());
+        Assertions.assertEquals(1, cache.stats().getExpirationCount());
+    }
+
+    @Test
+    void getOrLoad_refreshesStaleEntryInBackground() {
+        CacheSpec spec = new CacheSpec(10);
+        spec.setRefreshAfterWrite(Duration.ofMinutes(1));
+        TestCache cache = new TestCache(spec);
+        AtomicLong now = new AtomicLong();
+        cache.setTicker(now::get);
+        List<Runnable> refreshes = new ArrayList<>();
+        cache.setRefreshExecutor(refreshes::add);
+        cache.getOrLoad(1L, id -> "v1");
+
+        now.addAndGet(Duration.ofMinutes(2).toNanos());
+        Assertions.assertEquals("v1", cache.getOrLoad(1L, id -> "v2"));
+        Assertions.assertEquals("v1", cache.getOrLoad(1L, id -> "v3"));
+        Assertions.assertEquals(1, refreshes.size());
+
+        refreshes.get(0).run();
+        Assertions.assertEquals("v2", cache.get(1L));
+    }
+
+    @Test
+    void getOrLoad_remembersMissingIdUntilPutOrTtl() {
+        CacheSpec spec = new CacheSpec(10);
+        spec.setNegativeCapacity(16);
+        spec.setNegativeTtl(Duration.ofSeconds(30));
+        TestCache cache = new TestCache(spec);
+        AtomicLong now = new AtomicLong();
+        cache.setTicker(now::get);
+        AtomicInteger loads = new AtomicInteger();
+
+        Assertions.assertNull(cache.getOrLoad(7L, id -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+        Assertions.assertNull(cache.getOrLoad(7L, id -> "never loaded"));
+        Assertions.assertEquals(1, loads.get());
+        Assertions.assertEquals(1, cache.stats().getNegativeHitCount());
+
+        now.addAndGet(Duration.ofSeconds(31).toNanos());
+        Assertions.assertEquals("seven", cache.getOrLoad(7L, id -> "seven"));
+
+        cache.remove(7L);
+        Assertions.assertNull(cache.getOrLoad(7L, id -> null));
+        cache.put(7L, "created");
+        Assertions.assertEquals("created", cache.getOrLoad(7L, id -> null));
+    }
+
+    @Test
+    void hotKeys_listsCachedIdsMostFrequentFirst() {
+        TestCache cache = new TestCache(3);
+        cache.put(1L, "one");
+        cache.put(2L, "two");
+        cache.put(3L, "three");
+        cache.get(2L);
+        cache.get(2L);
+        cache.get(3L);
+
+        List<Long> ids = cache.hotKeys().stream().map(HotKey::id).toList();
+
+        Assertions.assertEquals(List.of(2L, 3L, 1L), ids);
+    }
+
+    @Test
+    void loadAll_loadsOnlyMissingIdsInOneCall() {
+        TestCache cache = new TestCache(10);
+        cache.put(1L, "cached");
+        List<long[]> calls = new ArrayList<>();
+
+        int loaded = cache.loadAll(new long[] {1L, 2L, 3L, 2L}, ids -> {
+            calls.add(ids);
+            return Map.of(2L, "two");
+        });
+
+        Assertions.assertEquals(1, loaded);
+        Assertions.assertEquals(1, calls.size());
+        Assertions.assertArrayEquals(new long[] {2L, 3L}, Arrays.stream(calls.get(0)).sorted().toArray());
+        Assertions.assertEquals("cached", cache.get(1L));
+        Assertions.assertEquals("two", cache.get(2L));
+        Assertions.assertNull(cache.get(3L));
+    }
+
+    @Test
+    void loadAll_doesNotOverwriteConcurrentWrite() {
+        TestCache cache = new TestCache(10);
+
+        cache.loadAll(new long[] {1L}, ids -> {
+            cache.put(1L, "written");
+            return Map.of(1L, "loaded");
+        });
+
+        Assertions.assertEquals("written", cache.get(1L));
+    }
+
+    @Test
+    void concurrentAccess_keepsCapacityBound() throws Exception {
+        TestCache cache = new TestCache(256);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 20_000; i++) {
+                        long id = random.nextLong(1_000);
+                        if (cache.get(id) == null) {
+                            cache.put(id, "value-" + id);
+                        }
+                        if (i % 97 == 0) {
+                            cache.remove(random.nextLong(1_000));
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Assertions.assertTrue(cache.size() <= 256);
+        cache.clear();
+        cache.put(5_000L, "fresh");
+        Assertions.assertEquals("fresh", cache.get(5_000L));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.oldvabik.warehousemanagement.cache;
+
+import com.oldvabik.warehousemanagement.config.CacheProperties;
+import com.oldvabik.warehousemanagement.model.CategorySnapshot;
+import com.oldvabik.warehousemanagement.model.ProductSnapshot;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ProductCacheTest {
+
+    private final ProductCache cache = new ProductCache(new CacheProperties());
+
+    private static ProductSnapshot product(Long id, String name, Long categoryId) {
+        return new ProductSnapshot(id, name, 10.0, 1, new CategorySnapshot(categoryId, "Category " + categoryId));
+    }
+
+    @Test
+    void invalidateDependents_dropsOnlyProductsOfThatCategory() {
+        cache.put(1L, product(1L, "Laptop", 1L));
+        cache.put(2L, product(2L, "Phone", 1L));
+        cache.put(3L, product(3L, "Novel", 2L));
+        cache.put(2L, product(2L, "Phone", 2L));
+
+        cache.invalidateDependents(EntityRef.category(1L));
+
+        Assertions.assertNull(cache.get(1L));
+        Assertions.assertNotNull(cache.get(2L));
+        Assertions.assertNotNull(cache.get(3L));
+
+        cache.invalidate(EntityRef.product(3L));
+        Assertions.assertNull(cache.get(3L));
+        Assertions.assertNotNull(cache.get(2L));
+    }
+
+    @Test
+    void invalidateDependents_discardsLoadInFlight() {
+        ProductSnapshot loaded = cache.getOrLoad(1L, id -> {
+            cache.invalidateDependents(EntityRef.category(1L));
+            return product(id, "Laptop", 1L);
+        });
+
+        Assertions.assertEquals("Laptop", loaded.name());
+        Assertions.assertNull(cache.get(1L));
+    }
+}
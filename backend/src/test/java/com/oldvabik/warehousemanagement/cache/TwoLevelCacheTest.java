@@ -0,0 +1,167 @@
+package com.oldvabik.warehousemanagement.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.oldvabik.warehousemanagement.config.CacheProperties;
+import com.oldvabik.warehousemanagement.model.CategorySnapshot;
+import com.oldvabik.warehousemanagement.model.OrderProductSnapshot;
+import com.oldvabik.warehousemanagement.model.OrderSnapshot;
+import com.oldvabik.warehousemanagement.model.ProductSnapshot;
+import com.oldvabik.warehousemanagement.model.UserSnapshot;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TwoLevelCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final InMemoryRemoteStore remote = new InMemoryRemoteStore();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final LongFunction<ProductSnapshot> loader = id -> {
+        loads.incrementAndGet();
+        return product(id, 7L);
+    };
+
+    private TwoLevelCache<ProductSnapshot> node() {
+        return new TwoLevelCache<>(new ProductCache(new CacheProperties()), remote, objectMapper,
+                ProductSnapshot.class, Duration.ofMinutes(5));
+    }
+
+    private static ProductSnapshot product(long id, long categoryId) {
+        return new ProductSnapshot(id, "Product " + id, 10.0, 1, new CategorySnapshot(categoryId, "Category"));
+    }
+
+    @Test
+    void getOrLoad_sharesDatabaseLoadsThroughRemoteStore() {
+        TwoLevelCache<ProductSnapshot> first = node();
+        TwoLevelCache<ProductSnapshot> second = node();
+
+        Assertions.assertEquals(product(1L, 7L), first.getOrLoad(1L, loader));
+        Assertions.assertEquals(product(1L, 7L), second.getOrLoad(1L, loader));
+        Assertions.assertEquals(product(1L, 7L), second.getOrLoad(1L, loader));
+
+        Assertions.assertEquals(1, loads.get());
+        Assertions.assertEquals(1, second.size());
+    }
+
+    @Test
+    void getOrLoad_countsLocalHitOnce() {
+        TwoLevelCache<ProductSnapshot> cache = node();
+
+        cache.getOrLoad(1L, loader);
+        cache.getOrLoad(1L, loader);
+
+        Assertions.assertEquals(1, cache.stats().getHitCount());
+        Assertions.assertEquals(1, cache.stats().getMissCount());
+        Assertions.assertEquals(1, loads.get());
+    }
+
+    @Test
+    void getOrLoad_refreshesFromDatabaseIntoBothLevels() {
+        CacheProperties properties = new CacheProperties();
+        properties.getProducts().setRefreshAfterWrite(Duration.ofMinutes(1));
+        ProductCache local = new ProductCache(properties);
+        AtomicLong now = new AtomicLong();
+        local.setTicker(now::get);
+        List<Runnable> refreshes = new ArrayList<>();
+        local.setRefreshExecutor(refreshes::add);
+        TwoLevelCache<ProductSnapshot> cache = new TwoLevelCache<>(local, remote, objectMapper,
+                ProductSnapshot.class, Duration.ofMinutes(5));
+        cache.getOrLoad(1L, loader);
+
+        now.addAndGet(Duration.ofMinutes(2).toNanos());
+        Assertions.assertEquals(product(1L, 7L), cache.getOrLoad(1L, id -> product(id, 8L)));
+        refreshes.forEach(Runnable::run);
+
+        Assertions.assertEquals(product(1L, 8L), local.get(1L));
+        Assertions.assertEquals(product(1L, 8L), node().get(1L));
+    }
+
+    @Test
+    void remove_dropsRemoteEntry() {
+        TwoLevelCache<ProductSnapshot> first = node();
+        TwoLevelCache<ProductSnapshot> second = node();
+        first.put(1L, product(1L, 7L));
+
+        second.remove(1L);
+
+        Assertions.assertNull(remote.get("products:1"));
+        Assertions.assertEquals(product(1L, 7L), second.getOrLoad(1L, loader));
+        Assertions.assertEquals(1, loads.get());
+    }
+
+    @Test
+    void invalidateDependents_dropsOnlyRemoteEntriesEmbeddingTheEntity() {
+        TwoLevelCache<ProductSnapshot> first = node();
+        first.put(1L, product(1L, 7L));
+        first.put(2L, product(2L, 8L));
+
+        node().invalidateDependents(EntityRef.category(7L));
+
+        TwoLevelCache<ProductSnapshot> second = node();
+        second.getOrLoad(1L, loader);
+        second.getOrLoad(2L, loader);
+        Assertions.assertEquals(1, loads.get());
+        Assertions.assertEquals(product(1L, 7L), first.get(1L));
+    }
+
+    @Test
+    void loadAll_loadsOnlyIdsMissingFromBothLevels() {
+        TwoLevelCache<ProductSnapshot> first = node();
+        first.put(1L, product(1L, 7L));
+        TwoLevelCache<ProductSnapshot> second = node();
+        second.put(2L, product(2L, 7L));
+
+        int cached = second.loadAll(new long[] {1L, 2L, 3L}, ids -> {
+            Assertions.assertArrayEquals(new long[] {3L}, ids);
+            return Map.of(3L, product(3L, 7L));
+        });
+
+        Assertions.assertEquals(2, cached);
+        Assertions.assertEquals(product(3L, 7L), first.get(3L));
+    }
+
+    @Test
+    void getOrLoad_fallsBackToDatabaseWhenRemoteStoreFails() {
+        RemoteStore failing = new InMemoryRemoteStore() {
+            @Override
+            public byte[] get(String key) {
+                throw new IllegalStateException("connection refused");
+            }
+
+            @Override
+            public void put(String key, byte[] value, Duration ttl) {
+                throw new IllegalStateException("connection refused");
+            }
+        };
+        TwoLevelCache<ProductSnapshot> cache = new TwoLevelCache<>(new ProductCache(new CacheProperties()),
+                failing, objectMapper, ProductSnapshot.class, Duration.ofMinutes(5));
+
+        Assertions.assertEquals(product(1L, 7L), cache.getOrLoad(1L, loader));
+        Assertions.assertEquals(product(1L, 7L), cache.getOrLoad(1L, loader));
+        Assertions.assertEquals(1, loads.get());
+    }
+
+    @Test
+    void codec_roundTripsOrderSnapshots() {
+        TwoLevelCache<OrderSnapshot> first = new TwoLevelCache<>(new OrderCache(new CacheProperties()), remote,
+                objectMapper, OrderSnapshot.class, Duration.ofMinutes(5));
+        TwoLevelCache<OrderSnapshot> second = new TwoLevelCache<>(new OrderCache(new CacheProperties()), remote,
+                objectMapper, OrderSnapshot.class, Duration.ofMinutes(5));
+        OrderSnapshot order = new OrderSnapshot(5L, LocalDate.of(2024, 3, 1), 20.0,
+                new UserSnapshot(2L, "Alice", "Smith", "alice@example.com", 25),
+                List.of(new OrderProductSnapshot(new OrderProductSnapshot.Key(5L, 1L), product(1L, 7L), 2)));
+
+        first.put(5L, order);
+
+        Assertions.assertEquals(order, second.getOrLoad(5L, id -> null));
+        second.invalidateDependents(EntityRef.user(2L));
+        Assertions.assertNull(second.getOrLoad(5L, id -> null));
+    }
+}
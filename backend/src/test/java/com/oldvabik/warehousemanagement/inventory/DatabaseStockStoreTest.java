@@ -0,0 +1,55 @@
+package com.oldvabik.warehousemanagement.inventory;
+
+import com.oldvabik.warehousemanagement.model.Product;
+import com.oldvabik.warehousemanagement.repository.ProductRepository;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+class DatabaseStockStoreTest {
+
+    private final ProductRepository productRepository = Mockito.mock(ProductRepository.class);
+    private final DatabaseStockStore stockStore = new DatabaseStockStore(productRepository);
+
+    @Test
+    void moveStock_undoesAppliedRowsWhenAnyProductIsShort() {
+        Product laptop = product(1L);
+        Product mouse = product(2L);
+        Product phone = product(3L);
+        Mockito.when(productRepository.moveStock(Map.of(laptop, 2, mouse, 1), Map.of(phone, 1)))
+                .thenReturn(List.of(mouse));
+
+        Assertions.assertEquals(List.of(mouse), stockStore.moveStock(Map.of(laptop, 2, mouse, 1), Map.of(phone, 1)));
+
+        Mockito.verify(productRepository).moveStock(Map.of(phone, 1), Map.of(laptop, 2));
+    }
+
+    @Test
+    void moveStock_leavesSuccessfulMoveAlone() {
+        Product laptop = product(1L);
+        Mockito.when(productRepository.moveStock(Map.of(laptop, 2), Map.of())).thenReturn(List.of());
+
+        Assertions.assertEquals(List.of(), stockStore.moveStock(Map.of(laptop, 2), Map.of()));
+
+        Mockito.verify(productRepository, Mockito.times(1)).moveStock(Mockito.anyMap(), Mockito.anyMap());
+    }
+
+    @Test
+    void setQuantity_updatesStockThroughRepository() {
+        Product laptop = product(1L);
+
+        stockStore.setQuantity(laptop, 7);
+
+        Mockito.verify(productRepository).setQuantity(laptop, 7);
+    }
+
+    private static Product product(long id) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("Product " + id);
+        return product;
+    }
+
+}
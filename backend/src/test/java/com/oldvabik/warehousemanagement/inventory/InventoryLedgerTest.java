@@ -0,0 +1,185 @@
+package com.oldvabik.warehousemanagement.inventory;
+
+import com.oldvabik.warehousemanagement.cache.CacheInvalidator;
+import com.oldvabik.warehousemanagement.cache.EntityRef;
+import com.oldvabik.warehousemanagement.config.CacheProperties;
+import com.oldvabik.warehousemanagement.config.InventoryProperties;
+import com.oldvabik.warehousemanagement.model.InventoryCheckpoint;
+import com.oldvabik.warehousemanagement.model.Product;
+import com.oldvabik.warehousemanagement.repository.InventoryCheckpointRepository;
+import jakarta.persistence.EntityManager;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class InventoryLedgerTest {
+
+    @TempDir
+    Path directory;
+
+    private JdbcTemplate jdbcTemplate;
+    private InventoryCheckpointRepository checkpointRepository;
+    private CacheInvalidator cacheInvalidator;
+    private InventoryLedger ledger;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+        checkpointRepository = Mockito.mock(InventoryCheckpointRepository.class);
+        cacheInvalidator = Mockito.mock(CacheInvalidator.class);
+        stock(1L, 5);
+        stock(2L, 1);
+        Mockito.when(jdbcTemplate.batchUpdate(Mockito.anyString(), Mockito.<List<Object[]>>any())).thenAnswer(invocation -> {
+            int[] counts = new int[invocation.<List<Object[]>>getArgument(1).size()];
+            Arrays.fill(counts, 1);
+            return counts;
+        });
+    }
+
+    @Test
+    void moveStock_takesAllOrNothing() throws IOException {
+        ledger = start();
+        Product laptop = product(1L);
+        Product mouse = product(2L);
+
+        Assertions.assertEquals(List.of(mouse), ledger.moveStock(Map.of(laptop, 2, mouse, 2), Map.of()));
+        Assertions.assertEquals(List.of(), ledger.moveStock(Map.of(laptop, 5, mouse, 1), Map.of()));
+        Assertions.assertEquals(List.of(laptop), ledger.moveStock(Map.of(laptop, 1), Map.of()));
+        Assertions.assertEquals(List.of(), ledger.moveStock(Map.of(), Map.of(laptop, 1)));
+        Assertions.assertEquals(List.of(), ledger.moveStock(Map.of(laptop, 1), Map.of()));
+    }
+
+    @Test
+    void moveStock_releasesReservationOnRollback() throws IOException {
+        ledger = start();
+        Product laptop = product(1L);
+        inTransaction(TransactionSynchronization.STATUS_ROLLED_BACK, () -> ledger.moveStock(Map.of(laptop, 5), Map.of()));
+
+        Assertions.assertEquals(List.of(), ledger.moveStock(Map.of(laptop, 5), Map.of()));
+    }
+
+    @Test
+    void moveStock_returnsStockOnlyAfterCommit() throws IOException {
+        ledger = start();
+        Product mouse = product(2L);
+
+        inTransaction(TransactionSynchronization.STATUS_ROLLED_BACK, () -> {
+            ledger.moveStock(Map.of(), Map.of(mouse, 3));
+            Assertions.assertEquals(List.of(mouse), ledger.moveStock(Map.of(mouse, 2), Map.of()));
+        });
+        Assertions.assertEquals(List.of(mouse), ledger.moveStock(Map.of(mouse, 2), Map.of()));
+
+        inTransaction(TransactionSynchronization.STATUS_COMMITTED, () -> ledger.moveStock(Map.of(), Map.of(mouse, 3)));
+        Assertions.assertEquals(List.of(), ledger.moveStock(Map.of(mouse, 4), Map.of()));
+    }
+
+    @Test
+    void flush_writesCountersWithCheckpointAndDropsLog() throws IOException {
+        ledger = start();
+        ledger.moveStock(Map.of(product(2L), 1), Map.of());
+        ledger.moveStock(Map.of(product(1L), 2), Map.of());
+
+        ledger.flush();
+
+        List<Object[]> rows = captureWrittenRows();
+        Assertions.assertArrayEquals(new Object[] {3, 1L}, rows.get(0));
+        Assertions.assertArrayEquals(new Object[] {0, 2L}, rows.get(1));
+        Mockito.verify(checkpointRepository).save(new InventoryCheckpoint(1, 2L));
+        Mockito.verify(cacheInvalidator).invalidate(EntityRef.product(1L));
+        Mockito.verify(cacheInvalidator).invalidate(EntityRef.product(2L));
+        try (ReservationLog log = new ReservationLog(directory, false)) {
+            Assertions.assertEquals(List.of(), log.readAll());
+        }
+    }
+
+    @Test
+    void recover_replaysRecordsAfterCheckpoint() throws IOException {
+        try (ReservationLog log = new ReservationLog(directory, false)) {
+            log.rotate(1);
+            log.append(new LedgerRecord(1, false, Map.of(1L, -2)));
+            log.append(new LedgerRecord(2, true, Map.of(2L, 7)));
+            log.append(new LedgerRecord(3, false, Map.of(1L, -1, 2L, -3)));
+        }
+        Files.writeString(directory.resolve("ledger-00000000000000000001.log"), "4 R 1:-", StandardOpenOption.APPEND);
+        Mockito.when(checkpointRepository.findById(1)).thenReturn(Optional.of(new InventoryCheckpoint(1, 1L)));
+
+        ledger = start();
+
+        List<Object[]> rows = captureWrittenRows();
+        Assertions.assertArrayEquals(new Object[] {4, 1L}, rows.get(0));
+        Assertions.assertArrayEquals(new Object[] {4, 2L}, rows.get(1));
+        Mockito.verify(checkpointRepository).save(new InventoryCheckpoint(1, 3L));
+    }
+
+    @Test
+    void constructor_refusesSharedCaches() {
+        CacheProperties cacheProperties = new CacheProperties();
+        cacheProperties.getInvalidation().setTransport("postgres");
+
+        Assertions.assertThrows(IllegalStateException.class, () -> create(cacheProperties));
+    }
+
+    private static void inTransaction(int status, Runnable work) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            work.run();
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                synchronizations.forEach(TransactionSynchronization::afterCommit);
+            }
+            synchronizations.forEach(sync -> sync.afterCompletion(status));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private InventoryLedger start() throws IOException {
+        InventoryLedger inventoryLedger = create(new CacheProperties());
+        inventoryLedger.recover();
+        return inventoryLedger;
+    }
+
+    private InventoryLedger create(CacheProperties cacheProperties) throws IOException {
+        InventoryProperties properties = new InventoryProperties();
+        properties.getLedger().setPath(directory.toString());
+        properties.getLedger().setSync(false);
+        return new InventoryLedger(jdbcTemplate, Mockito.mock(PlatformTransactionManager.class),
+                checkpointRepository, Mockito.mock(EntityManager.class), cacheInvalidator, properties, cacheProperties);
+    }
+
+    private void stock(long id, int quantity) {
+        Mockito.when(jdbcTemplate.queryForObject(Mockito.anyString(), Mockito.eq(Integer.class), Mockito.eq(id)))
+                .thenReturn(quantity);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> captureWrittenRows() {
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(jdbcTemplate).batchUpdate(Mockito.anyString(), rows.capture());
+        return rows.getValue();
+    }
+
+    private static Product product(long id) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("Product " + id);
+        product.setQuantity(0);
+        return product;
+    }
+
+}
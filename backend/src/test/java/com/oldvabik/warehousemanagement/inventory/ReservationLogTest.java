@@ -0,0 +1,49 @@
+package com.oldvabik.warehousemanagement.inventory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReservationLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void append_keepsEveryConcurrentRecordAcrossRotation() throws Exception {
+        ExecutorService appenders = Executors.newFixedThreadPool(8);
+        AtomicLong sequence = new AtomicLong();
+        try (ReservationLog log = new ReservationLog(directory, true)) {
+            log.rotate(1);
+            List<Future<?>> done = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                done.add(appenders.submit(() -> {
+                    for (int j = 0; j < 50; j++) {
+                        log.append(new LedgerRecord(sequence.incrementAndGet(), false, Map.of(1L, -1)));
+                    }
+                    return null;
+                }));
+            }
+            log.rotate(201);
+            for (Future<?> future : done) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+
+            List<LedgerRecord> records = log.readAll();
+            Assertions.assertEquals(400, records.size());
+            Assertions.assertEquals(400, records.get(records.size() - 1).seq());
+        } finally {
+            appenders.shutdownNow();
+        }
+    }
+
+}
@@ -1,12 +1,20 @@
 package com.oldvabik.warehousemanagement.service;
 
+import com.oldvabik.warehousemanagement.cache.CacheInvalidator;
 import com.oldvabik.warehousemanagement.cache.CategoryCache;
+import com.oldvabik.warehousemanagement.cache.CollectionCache;
+import com.oldvabik.warehousemanagement.cache.EntityRef;
+import com.oldvabik.warehousemanagement.cache.EntityType;
+import com.oldvabik.warehousemanagement.config.CacheProperties;
 import com.oldvabik.warehousemanagement.dto.CategoryDto;
 import com.oldvabik.warehousemanagement.exception.AlreadyExistsException;
 import com.oldvabik.warehousemanagement.exception.ResourceNotFoundException;
 import com.oldvabik.warehousemanagement.mapper.CategoryMapper;
+import com.oldvabik.warehousemanagement.mapper.ProductMapper;
 import com.oldvabik.warehousemanagement.model.Category;
+import com.oldvabik.warehousemanagement.model.CategorySnapshot;
 import com.oldvabik.warehousemanagement.model.Product;
+import com.oldvabik.warehousemanagement.model.ProductSnapshot;
 import com.oldvabik.warehousemanagement.repository.CategoryRepository;
 import com.oldvabik.warehousemanagement.repository.ProductRepository;
 import org.junit.jupiter.api.Assertions;
@@ -15,11 +23,13 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.LongFunction;
 
 @ExtendWith(MockitoExtension.class)
 class CategoryServiceTest {
@@ -28,10 +38,16 @@ class CategoryServiceTest {
     private CategoryService categoryService;
     @Mock
     private CategoryRepository categoryRepository;
-    @Mock
+    @Spy
     private CategoryMapper categoryMapper;
     @Mock
     private CategoryCache categoryCache;
+    @Spy
+    private ProductMapper productMapper = new ProductMapper(new CategoryMapper());
+    @Spy
+    private CollectionCache collectionCache = new CollectionCache(new CacheProperties());
+    @Mock
+    private CacheInvalidator cacheInvalidator;
     @Mock
     private ProductRepository productRepository;
 
@@ -50,7 +66,6 @@ class CategoryServiceTest {
         Mockito.when(categoryRepository.existsByName(categoryDto.getName())).thenReturn(false);
         Mockito.when(categoryMapper.toEntity(categoryDto)).thenReturn(category);
         Mockito.when(categoryRepository.save(category)).thenReturn(savedCategory);
-        Mockito.doNothing().when(categoryCache).put(savedCategory.getId(), savedCategory);
 
         Category result = categoryService.createCategory(categoryDto);
 
@@ -59,7 +74,8 @@ class CategoryServiceTest {
         Mockito.verify(categoryRepository).existsByName(categoryDto.getName());
         Mockito.verify(categoryMapper).toEntity(categoryDto);
         Mockito.verify(categoryRepository).save(category);
-        Mockito.verify(categoryCache).put(savedCategory.getId(), savedCategory);
+        Mockito.verify(categoryCache).put(savedCategory.getId(), new CategorySnapshot(1L, "Electronics"));
+        Mockito.verify(cacheInvalidator).broadcast(EntityRef.category(1L));
     }
 
     @Test
@@ -82,8 +98,7 @@ class CategoryServiceTest {
         categoryDtoSecond.setName("Books");
         List<CategoryDto> categoriesDto = Arrays.asList(categoryDtoFirst, categoryDtoSecond);
 
-        Mockito.when(categoryRepository.existsByName(categoryDtoFirst.getName())).thenReturn(false);
-        Mockito.when(categoryRepository.existsByName(categoryDtoSecond.getName())).thenReturn(false);
+        Mockito.when(categoryRepository.findAllByNameIn(Mockito.anyCollection())).thenReturn(Collections.emptyList());
 
         Category categoryFirst = new Category();
         categoryFirst.setName("Electronics");
@@ -108,8 +123,8 @@ class CategoryServiceTest {
 
         Assertions.assertNotNull(result);
         Assertions.assertEquals(2, result.size());
-        Mockito.verify(categoryRepository).existsByName("Electronics");
-        Mockito.verify(categoryRepository).existsByName("Books");
+        Mockito.verify(categoryRepository).findAllByNameIn(Arrays.asList("Electronics", "Books"));
+        Mockito.verify(categoryRepository, Mockito.never()).existsByName(Mockito.anyString());
         Mockito.verify(categoryMapper).toEntity(categoryDtoFirst);
         Mockito.verify(categoryMapper).toEntity(categoryDtoSecond);
         Mockito.verify(categoryRepository).saveAll(Arrays.asList(categoryFirst, categorySecond));
@@ -134,8 +149,9 @@ class CategoryServiceTest {
         categoryDtoSecond.setName("Books");
         List<CategoryDto> categoriesDto = Arrays.asList(categoryDtoFirst, categoryDtoSecond);
 
-        Mockito.when(categoryRepository.existsByName("Electronics")).thenReturn(true);
-        Mockito.when(categoryRepository.existsByName("Books")).thenReturn(false);
+        Category existing = new Category();
+        existing.setName("Electronics");
+        Mockito.when(categoryRepository.findAllByNameIn(Mockito.anyCollection())).thenReturn(List.of(existing));
 
         Assertions.assertThrows(IllegalArgumentException.class, () -> categoryService.createCategories(categoriesDto));
     }
@@ -151,17 +167,13 @@ class CategoryServiceTest {
         List<Category> categories = Arrays.asList(categoryFirst, categorySecond);
 
         Mockito.when(categoryRepository.findAll()).thenReturn(categories);
-        Mockito.when(categoryCache.get(1L)).thenReturn(null);
-        Mockito.when(categoryCache.get(2L)).thenReturn(categorySecond);
-        Mockito.doNothing().when(categoryCache).put(1L, categoryFirst);
 
-        List<Category> result = categoryService.getCategories();
+        List<CategorySnapshot> result = categoryService.getCategories();
 
-        Assertions.assertEquals(2, result.size());
+        Assertions.assertEquals(
+                List.of(new CategorySnapshot(1L, "Electronics"), new CategorySnapshot(2L, "Books")), result);
+        Assertions.assertSame(result, categoryService.getCategories());
         Mockito.verify(categoryRepository).findAll();
-        Mockito.verify(categoryCache).get(1L);
-        Mockito.verify(categoryCache).get(2L);
-        Mockito.verify(categoryCache).put(1L, categoryFirst);
     }
 
     @Test
@@ -173,16 +185,14 @@ class CategoryServiceTest {
 
     @Test
     void testGetCategoryById_fromCache() {
-        Category category = new Category();
-        category.setId(1L);
-        category.setName("Electronics");
+        CategorySnapshot category = new CategorySnapshot(1L, "Electronics");
 
-        Mockito.when(categoryCache.get(1L)).thenReturn(category);
+        Mockito.when(categoryCache.getOrLoad(Mockito.eq(1L), Mockito.any())).thenReturn(category);
 
-        Category result = categoryService.getCategoryById(1L);
+        CategorySnapshot result = categoryService.getCategoryById(1L);
 
         Assertions.assertEquals(category, result);
-        Mockito.verify(categoryCache).get(1L);
+        Mockito.verify(categoryCache).getOrLoad(Mockito.eq(1L), Mockito.any());
         Mockito.verify(categoryRepository, Mockito.never()).findById(Mockito.anyLong());
     }
 
@@ -192,21 +202,19 @@ class CategoryServiceTest {
         category.setId(1L);
         category.setName("Electronics");
 
-        Mockito.when(categoryCache.get(1L)).thenReturn(null);
+        loadThroughCache(1L);
         Mockito.when(categoryRepository.findById(1L)).thenReturn(Optional.of(category));
-        Mockito.doNothing().when(categoryCache).put(1L, category);
 
-        Category result = categoryService.getCategoryById(1L);
+        CategorySnapshot result = categoryService.getCategoryById(1L);
 
-        Assertions.assertEquals(category, result);
-        Mockito.verify(categoryCache).get(1L);
+        Assertions.assertEquals(new CategorySnapshot(1L, "Electronics"), result);
+        Mockito.verify(categoryCache).getOrLoad(Mockito.eq(1L), Mockito.any());
         Mockito.verify(categoryRepository).findById(1L);
-        Mockito.verify(categoryCache).put(1L, category);
     }
 
     @Test
     void getCategoryById_throwsException() {
-        Mockito.when(categoryCache.get(1L)).thenReturn(null);
+        loadThroughCache(1L);
         Mockito.when(categoryRepository.findById(1L)).thenReturn(Optional.empty());
 
         Assertions.assertThrows(ResourceNotFoundException.class, () -> categoryService.getCategoryById(1L));
@@ -228,7 +236,6 @@ class CategoryServiceTest {
         Mockito.when(categoryRepository.findById(1L)).thenReturn(Optional.of(existingCategory));
         Mockito.when(categoryRepository.findByName(updateDto.getName())).thenReturn(Optional.empty());
         Mockito.when(categoryRepository.save(existingCategory)).thenReturn(updatedCategory);
-        Mockito.doNothing().when(categoryCache).put(1L, updatedCategory);
 
         Category result = categoryService.updateCategory(1L, updateDto);
 
@@ -236,7 +243,8 @@ class CategoryServiceTest {
         Mockito.verify(categoryRepository).findById(1L);
         Mockito.verify(categoryRepository).findByName(updateDto.getName());
         Mockito.verify(categoryRepository).save(existingCategory);
-        Mockito.verify(categoryCache).put(1L, updatedCategory);
+        Mockito.verify(categoryCache).put(1L, new CategorySnapshot(1L, "Home Appliances"));
+        Mockito.verify(cacheInvalidator).invalidateDependents(EntityRef.category(1L));
     }
 
     @Test
@@ -280,6 +288,7 @@ class CategoryServiceTest {
         Mockito.verify(categoryRepository).findById(1L);
         Mockito.verify(categoryRepository).delete(category);
         Mockito.verify(categoryCache).remove(1L);
+        Mockito.verify(cacheInvalidator).invalidateDependents(EntityRef.category(1L));
     }
 
     @Test
@@ -303,12 +312,28 @@ class CategoryServiceTest {
 
         Mockito.when(productRepository.findByCategoryId(1L)).thenReturn(products);
 
-        List<Product> result = categoryService.getProductsByCategory(1L);
+        List<ProductSnapshot> result = categoryService.getProductsByCategory(1L);
 
         Assertions.assertEquals(2, result.size());
+        Assertions.assertSame(result, categoryService.getProductsByCategory(1L));
         Mockito.verify(productRepository).findByCategoryId(1L);
     }
 
+    @Test
+    void getProductsByCategory_reloadsAfterProductWrite() {
+        Product product = new Product();
+        product.setId(1L);
+        product.setName("Product 1");
+
+        Mockito.when(productRepository.findByCategoryId(1L)).thenReturn(List.of(product));
+
+        categoryService.getProductsByCategory(1L);
+        collectionCache.invalidate(EntityType.PRODUCT);
+        categoryService.getProductsByCategory(1L);
+
+        Mockito.verify(productRepository, Mockito.times(2)).findByCategoryId(1L);
+    }
+
     @Test
     void getProductsByCategory_throwsException() {
         Mockito.when(productRepository.findByCategoryId(1L)).thenReturn(Collections.emptyList());
@@ -337,4 +362,9 @@ class CategoryServiceTest {
         Assertions.assertThrows(ResourceNotFoundException.class, () -> categoryService.getProductById(1L, 1L));
     }
 
+    private void loadThroughCache(Long id) {
+        Mockito.when(categoryCache.getOrLoad(Mockito.eq(id), Mockito.any()))
+                .thenAnswer(invocation -> invocation.<LongFunction<CategorySnapshot>>getArgument(1).apply(id));
+    }
+
 }
@@ -0,0 +1,137 @@
+package com.oldvabik.warehousemanagement.service;
+
+import com.oldvabik.warehousemanagement.config.OrderProperties;
+import com.oldvabik.warehousemanagement.exception.AlreadyExistsException;
+import com.oldvabik.warehousemanagement.exception.RequestInProgressException;
+import com.oldvabik.warehousemanagement.exception.ResourceNotFoundException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class IdempotencyServiceTest {
+
+    private static final String SCOPE = "POST /users/1/orders";
+
+    private OrderProperties properties;
+    private IdempotencyService idempotencyService;
+    private AtomicInteger runs;
+
+    @BeforeEach
+    void setUp() {
+        properties = new OrderProperties();
+        idempotencyService = new IdempotencyService(properties);
+        runs = new AtomicInteger();
+    }
+
+    @Test
+    void execute_repeatedKeyReturnsStoredResult() {
+        String first = idempotencyService.execute(SCOPE, "key-1", "cart", this::run);
+        String second = idempotencyService.execute(SCOPE, "key-1", "cart", this::run);
+        String otherScope = idempotencyService.execute("POST /users/2/orders", "key-1", "cart", this::run);
+        String noKey = idempotencyService.execute(SCOPE, null, "cart", this::run);
+
+        Assertions.assertEquals("result-1", first);
+        Assertions.assertEquals("result-1", second);
+        Assertions.assertEquals("result-2", otherScope);
+        Assertions.assertEquals("result-3", noKey);
+    }
+
+    @Test
+    void execute_sameKeyWithDifferentRequestIsRejected() {
+        idempotencyService.execute(SCOPE, "key-1", "cart", this::run);
+
+        Assertions.assertThrows(AlreadyExistsException.class,
+                () -> idempotencyService.execute(SCOPE, "key-1", "another cart", this::run));
+        Assertions.assertEquals(1, runs.get());
+    }
+
+    @Test
+    void execute_failedAttemptIsNotStored() {
+        Assertions.assertThrows(ResourceNotFoundException.class, () -> idempotencyService.execute(SCOPE, "key-1", "cart",
+                () -> {
+                    throw new ResourceNotFoundException("Not enough stock for product: Laptop");
+                }));
+
+        Assertions.assertEquals("result-1", idempotencyService.execute(SCOPE, "key-1", "cart", this::run));
+    }
+
+    @Test
+    void execute_concurrentDuplicateWaitsForFirstAttempt() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(
+                () -> idempotencyService.execute(SCOPE, "key-1", "cart", () -> {
+                    started.countDown();
+                    await(release);
+                    return run();
+                }));
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> duplicate = CompletableFuture.supplyAsync(
+                () -> idempotencyService.execute(SCOPE, "key-1", "cart", this::run));
+
+        Thread.sleep(50);
+        Assertions.assertFalse(duplicate.isDone());
+        release.countDown();
+
+        Assertions.assertEquals("result-1", first.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals("result-1", duplicate.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, runs.get());
+    }
+
+    @Test
+    void execute_keysExpireAndStoreIsBounded() throws InterruptedException {
+        properties.getIdempotency().setCapacity(2);
+        properties.getIdempotency().setTtl(Duration.ofMillis(50));
+
+        idempotencyService.execute(SCOPE, "key-1", "cart", this::run);
+        idempotencyService.execute(SCOPE, "key-2", "cart", this::run);
+        idempotencyService.execute(SCOPE, "key-3", "cart", this::run);
+        Assertions.assertEquals("result-4", idempotencyService.execute(SCOPE, "key-1", "cart", this::run));
+        Assertions.assertEquals("result-3", idempotencyService.execute(SCOPE, "key-3", "cart", this::run));
+
+        Thread.sleep(60);
+        Assertions.assertEquals("result-5", idempotencyService.execute(SCOPE, "key-3", "cart", this::run));
+    }
+
+    @Test
+    void execute_runningAttemptIsNeitherEvictedNorRunTwice() throws Exception {
+        properties.getIdempotency().setCapacity(1);
+        properties.getIdempotency().setWaitTimeout(Duration.ofMillis(50));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(
+                () -> idempotencyService.execute(SCOPE, "key-1", "cart", () -> {
+                    started.countDown();
+                    await(release);
+                    return run();
+                }));
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        idempotencyService.execute(SCOPE, "key-2", "cart", this::run);
+        Assertions.assertThrows(RequestInProgressException.class,
+                () -> idempotencyService.execute(SCOPE, "key-1", "cart", this::run));
+        release.countDown();
+
+        Assertions.assertEquals("result-2", first.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals("result-2", idempotencyService.execute(SCOPE, "key-1", "cart", this::run));
+        Assertions.assertEquals(2, runs.get());
+    }
+
+    private String run() {
+        return "result-" + runs.incrementAndGet();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
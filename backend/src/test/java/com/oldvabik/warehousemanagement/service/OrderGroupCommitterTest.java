@@ -0,0 +1,157 @@
+package com.oldvabik.warehousemanagement.service;
+
+import com.oldvabik.warehousemanagement.config.OrderProperties;
+import com.oldvabik.warehousemanagement.dto.OrderDto;
+import com.oldvabik.warehousemanagement.exception.RequestInProgressException;
+import com.oldvabik.warehousemanagement.exception.ResourceNotFoundException;
+import com.oldvabik.warehousemanagement.model.Order;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+class OrderGroupCommitterTest {
+
+    private OrderService orderService;
+    private ExecutorService collector;
+    private ExecutorService committers;
+    private ExecutorService callers;
+    private OrderProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        orderService = Mockito.mock(OrderService.class);
+        collector = Executors.newSingleThreadExecutor();
+        committers = Executors.newFixedThreadPool(2);
+        callers = Executors.newFixedThreadPool(4);
+        properties = new OrderProperties();
+        properties.getGroupCommit().setEnabled(true);
+        properties.getGroupCommit().setWindow(Duration.ofSeconds(5));
+        properties.getGroupCommit().setMaxOrders(2);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        callers.shutdownNow();
+        committers.shutdownNow();
+        collector.shutdownNow();
+        collector.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void createOrder_closesGroupWhenWindowExpires() {
+        properties.getGroupCommit().setWindow(Duration.ofMillis(20));
+        properties.getGroupCommit().setMaxOrders(10);
+        Mockito.when(orderService.createOrders(Mockito.anyList())).thenAnswer(PlacedOrders.rejectingUsers());
+        OrderGroupCommitter committer = start();
+
+        Assertions.assertEquals(100L, committer.createOrder(1L, new OrderDto()).getId());
+        Mockito.verify(orderService).createOrders(Mockito.argThat(requests -> requests.size() == 1));
+    }
+
+    @Test
+    void createOrder_closesGroupAtMaxOrders() throws Exception {
+        Mockito.when(orderService.createOrders(Mockito.anyList())).thenAnswer(PlacedOrders.rejectingUsers());
+        OrderGroupCommitter committer = start();
+
+        List<Future<Order>> orders = List.of(submit(committer, 1L), submit(committer, 2L),
+                submit(committer, 3L), submit(committer, 4L));
+
+        for (int i = 0; i < orders.size(); i++) {
+            Assertions.assertEquals((i + 1) * 100L, orders.get(i).get(2, TimeUnit.SECONDS).getId());
+        }
+        Mockito.verify(orderService, Mockito.times(2)).createOrders(Mockito.argThat(requests -> requests.size() == 2));
+    }
+
+    @Test
+    void createOrder_rejectedOrderDoesNotFailItsGroup() throws Exception {
+        Mockito.when(orderService.createOrders(Mockito.anyList())).thenAnswer(PlacedOrders.rejectingUsers(2L));
+        OrderGroupCommitter committer = start();
+
+        Future<Order> placed = submit(committer, 1L);
+        Future<Order> rejected = submit(committer, 2L);
+
+        Assertions.assertEquals(100L, placed.get(2, TimeUnit.SECONDS).getId());
+        ExecutionException error = Assertions.assertThrows(ExecutionException.class,
+                () -> rejected.get(2, TimeUnit.SECONDS));
+        Assertions.assertInstanceOf(ResourceNotFoundException.class, error.getCause());
+        Mockito.verify(orderService).createOrders(Mockito.argThat(requests -> requests.size() == 2));
+    }
+
+    @Test
+    void createOrder_nextGroupCommitsWhileEarlierOneIsStillCommitting() throws Exception {
+        properties.getGroupCommit().setMaxOrders(1);
+        properties.getGroupCommit().setWaitTimeout(Duration.ofMillis(200));
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(orderService.createOrders(Mockito.anyList())).thenAnswer(invocation -> {
+            List<OrderService.OrderRequest> requests = invocation.getArgument(0);
+            if (requests.get(0).userId() == 1L) {
+                release.await(5, TimeUnit.SECONDS);
+            }
+            return PlacedOrders.place(requests);
+        });
+        OrderGroupCommitter committer = start();
+
+        Future<Order> slow = submit(committer, 1L);
+        Thread.sleep(50);
+        Assertions.assertEquals(300L, committer.createOrder(3L, new OrderDto()).getId());
+
+        ExecutionException error = Assertions.assertThrows(ExecutionException.class,
+                () -> slow.get(2, TimeUnit.SECONDS));
+        Assertions.assertInstanceOf(RequestInProgressException.class, error.getCause());
+        release.countDown();
+    }
+
+    @Test
+    void createOrder_retryWithSameKeyAfterTimeoutWaitsForTheGroup() throws Exception {
+        properties.getGroupCommit().setMaxOrders(1);
+        properties.getGroupCommit().setWaitTimeout(Duration.ofMillis(100));
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(orderService.createOrders(Mockito.anyList())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return PlacedOrders.place(invocation.getArgument(0));
+        });
+        OrderGroupCommitter committer = start();
+        IdempotencyService idempotencyService = new IdempotencyService(properties);
+        OrderDto orderDto = new OrderDto();
+
+        Assertions.assertThrows(RequestInProgressException.class, () -> idempotencyService.execute(
+                "POST /users/1/orders", "key-1", orderDto, () -> committer.createOrder(1L, orderDto)));
+        Future<Order> retry = callers.submit(() -> idempotencyService.execute(
+                "POST /users/1/orders", "key-1", orderDto, () -> committer.createOrder(1L, orderDto)));
+        release.countDown();
+
+        Assertions.assertEquals(100L, retry.get(2, TimeUnit.SECONDS).getId());
+        Mockito.verify(orderService).createOrders(Mockito.anyList());
+    }
+
+    @Test
+    void createOrder_placesOnItsOwnWhenNotRunning() {
+        Order order = new Order();
+        Mockito.when(orderService.createOrder(Mockito.eq(1L), Mockito.any())).thenReturn(order);
+        OrderGroupCommitter committer = new OrderGroupCommitter(orderService, collector, committers, properties);
+
+        Assertions.assertSame(order, committer.createOrder(1L, new OrderDto()));
+        Mockito.verify(orderService, Mockito.never()).createOrders(Mockito.anyList());
+    }
+
+    private OrderGroupCommitter start() {
+        OrderGroupCommitter committer = new OrderGroupCommitter(orderService, collector, committers, properties);
+        committer.start();
+        return committer;
+    }
+
+    private Future<Order> submit(OrderGroupCommitter committer, long userId) {
+        return callers.submit(() -> committer.createOrder(userId, new OrderDto()));
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.oldvabik.warehousemanagement.service;
+
+import com.oldvabik.warehousemanagement.config.OrderProperties;
+import com.oldvabik.warehousemanagement.dto.OrderDto;
+import com.oldvabik.warehousemanagement.exception.ResourceNotFoundException;
+import com.oldvabik.warehousemanagement.model.OrderIntakeStatus;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+class OrderIntakeServiceTest {
+
+    private OrderService orderService;
+    private ExecutorService executor;
+    private OrderProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        orderService = Mockito.mock(OrderService.class);
+        executor = Executors.newSingleThreadExecutor();
+        properties = new OrderProperties();
+        properties.getIntake().setEnabled(true);
+        properties.getIntake().setWorkers(1);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void submit_placesQueuedOrdersInBatches() throws InterruptedException {
+        Mockito.when(orderService.createOrders(Mockito.anyList())).thenAnswer(PlacedOrders.rejectingUsers(2L));
+        OrderIntakeService intake = new OrderIntakeService(orderService, executor, properties);
+
+        OrderIntakeStatus placed = intake.submit(1L, new OrderDto()).orElseThrow();
+        OrderIntakeStatus rejected = intake.submit(2L, new OrderDto()).orElseThrow();
+        Assertions.assertEquals(OrderIntakeStatus.State.QUEUED, placed.state());
+        intake.start();
+
+        Assertions.assertEquals(OrderIntakeStatus.State.PLACED, awaitDone(intake, placed.ticket()).state());
+        Assertions.assertEquals(100L, intake.getStatus(placed.ticket()).orderId());
+        Assertions.assertEquals("User not found", awaitDone(intake, rejected.ticket()).error());
+        Mockito.verify(orderService).createOrders(Mockito.argThat(requests -> requests.size() == 2));
+        intake.stop();
+    }
+
+    @Test
+    void submit_fullQueueIsRejected() {
+        properties.getIntake().setQueueCapacity(1);
+        OrderIntakeService intake = new OrderIntakeService(orderService, executor, properties);
+
+        Assertions.assertTrue(intake.submit(1L, new OrderDto()).isPresent());
+        Assertions.assertTrue(intake.submit(1L, new OrderDto()).isEmpty());
+        Assertions.assertThrows(ResourceNotFoundException.class, () -> intake.getStatus("unknown"));
+    }
+
+    private static OrderIntakeStatus awaitDone(OrderIntakeService intake, String ticket) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        OrderIntakeStatus status = intake.getStatus(ticket);
+        while (status.state() == OrderIntakeStatus.State.QUEUED && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            status = intake.getStatus(ticket);
+        }
+        return status;
+    }
+
+}
@@ -0,0 +1,338 @@
+package com.oldvabik.warehousemanagement.service;
+
+import com.oldvabik.warehousemanagement.cache.CacheInvalidator;
+import com.oldvabik.warehousemanagement.cache.EntityRef;
+import com.oldvabik.warehousemanagement.cache.OrderCache;
+import com.oldvabik.warehousemanagement.config.OrderProperties;
+import com.oldvabik.warehousemanagement.dto.OrderDto;
+import com.oldvabik.warehousemanagement.exception.ResourceNotFoundException;
+import com.oldvabik.warehousemanagement.inventory.StockStore;
+import com.oldvabik.warehousemanagement.mapper.CategoryMapper;
+import com.oldvabik.warehousemanagement.mapper.OrderMapper;
+import com.oldvabik.warehousemanagement.mapper.ProductMapper;
+import com.oldvabik.warehousemanagement.mapper.UserMapper;
+import com.oldvabik.warehousemanagement.model.Category;
+import com.oldvabik.warehousemanagement.model.Order;
+import com.oldvabik.warehousemanagement.model.OrderProduct;
+import com.oldvabik.warehousemanagement.model.OrderProductId;
+import com.oldvabik.warehousemanagement.model.Product;
+import com.oldvabik.warehousemanagement.model.User;
+import com.oldvabik.warehousemanagement.repository.OrderProductRepository;
+import com.oldvabik.warehousemanagement.repository.OrderRepository;
+import com.oldvabik.warehousemanagement.repository.ProductRepository;
+import com.oldvabik.warehousemanagement.repository.UserRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+@ExtendWith(MockitoExtension.class)
+class OrderServiceTest {
+
+    @InjectMocks
+    private OrderService orderService;
+    @Mock
+    private OrderRepository orderRepository;
+    @Mock
+    private OrderCache orderCache;
+    @Spy
+    private OrderMapper orderMapper = new OrderMapper(new UserMapper(), new ProductMapper(new CategoryMapper()));
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private ProductRepository productRepository;
+    @Mock
+    private OrderProductRepository orderProductRepository;
+    @Mock
+    private CacheInvalidator cacheInvalidator;
+    @Mock
+    private StockStore stockStore;
+    @Spy
+    private TransactionRetry transactionRetry =
+            new TransactionRetry(Mockito.mock(PlatformTransactionManager.class), new OrderProperties());
+
+    private static Product product(long id, String name, double price, int quantity) {
+        Category category = new Category();
+        category.setId(1L);
+        category.setName("Electronics");
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setPrice(price);
+        product.setQuantity(quantity);
+        product.setCategory(category);
+        return product;
+    }
+
+    private static OrderDto orderOf(Object... nameAndQuantity) {
+        OrderDto orderDto = new OrderDto();
+        for (int i = 0; i < nameAndQuantity.length; i += 2) {
+            OrderDto.OrderProductRequest item = new OrderDto.OrderProductRequest();
+            item.setProductName((String) nameAndQuantity[i]);
+            item.setQuantity((Integer) nameAndQuantity[i + 1]);
+            orderDto.getItems().add(item);
+        }
+        return orderDto;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void createOrder_resolvesItemsInOneQueryAndSavesOrderOnce() {
+        User user = new User();
+        user.setId(1L);
+        Product laptop = product(10L, "Laptop", 1000.0, 5);
+        Product mouse = product(11L, "Mouse", 20.0, 10);
+        Mockito.when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        Mockito.when(productRepository.findAllByNameIn(Mockito.anyCollection())).thenReturn(List.of(laptop, mouse));
+        Mockito.when(stockStore.moveStock(Mockito.anyMap(), Mockito.anyMap())).thenReturn(List.of());
+        Mockito.when(orderRepository.save(Mockito.any(Order.class))).thenAnswer(invocation -> {
+            Order order = invocation.getArgument(0);
+            order.setId(100L);
+            return order;
+        });
+
+        Order result = orderService.createOrder(1L, orderOf("Laptop", 1, "Mouse", 2, "Mouse", 1));
+
+        Assertions.assertEquals(1060.0, result.getTotalPrice());
+        Mockito.verify(stockStore).moveStock(Map.of(laptop, 1, mouse, 3), Map.of());
+        Assertions.assertEquals(2, result.getOrderProducts().size());
+        ArgumentCaptor<Collection<String>> names = ArgumentCaptor.forClass(Collection.class);
+        Mockito.verify(productRepository).findAllByNameIn(names.capture());
+        Assertions.assertEquals(Set.of("Laptop", "Mouse"), Set.copyOf(names.getValue()));
+        Mockito.verify(orderRepository, Mockito.times(1)).save(Mockito.any(Order.class));
+        ArgumentCaptor<Iterable<OrderProduct>> lines = ArgumentCaptor.forClass(Iterable.class);
+        Mockito.verify(orderProductRepository).saveAll(lines.capture());
+        Assertions.assertSame(result.getOrderProducts(), lines.getValue());
+        Mockito.verify(productRepository, Mockito.never()).save(Mockito.any());
+        Mockito.verify(productRepository, Mockito.never()).saveAll(Mockito.any());
+        Mockito.verify(cacheInvalidator).invalidate(EntityRef.product(10L));
+        Mockito.verify(cacheInvalidator).invalidate(EntityRef.product(11L));
+        Mockito.verify(cacheInvalidator).broadcast(EntityRef.order(100L));
+    }
+
+    @Test
+    void createOrder_insufficientStockSavesNoOrder() {
+        User user = new User();
+        user.setId(1L);
+        Product laptop = product(10L, "Laptop", 1000.0, 5);
+        Product mouse = product(11L, "Mouse", 20.0, 1);
+        Mockito.when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        Mockito.when(productRepository.findAllByNameIn(Mockito.anyCollection())).thenReturn(List.of(laptop, mouse));
+        Mockito.when(stockStore.moveStock(Mockito.anyMap(), Mockito.anyMap())).thenReturn(List.of(mouse));
+
+        ResourceNotFoundException exception = Assertions.assertThrows(ResourceNotFoundException.class,
+                () -> orderService.createOrder(1L, orderOf("Laptop", 1, "Mouse", 2)));
+
+        Assertions.assertTrue(exception.getMessage().contains("Mouse"));
+        Mockito.verifyNoInteractions(orderRepository, orderProductRepository, cacheInvalidator);
+    }
+
+    @Test
+    void createOrder_unknownProductThrows() {
+        User user = new User();
+        user.setId(1L);
+        Mockito.when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        Mockito.when(productRepository.findAllByNameIn(Mockito.anyCollection()))
+                .thenReturn(List.of(product(10L, "Laptop", 1000.0, 5)));
+
+        ResourceNotFoundException exception = Assertions.assertThrows(ResourceNotFoundException.class,
+                () -> orderService.createOrder(1L, orderOf("Laptop", 1, "Phone", 1)));
+
+        Assertions.assertTrue(exception.getMessage().contains("Phone"));
+        Mockito.verifyNoInteractions(orderRepository, orderProductRepository);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void updateOrder_returnsRemovedLinesAndTakesNewOnes() {
+        Product laptop = product(10L, "Laptop", 1000.0, 5);
+        Product mouse = product(11L, "Mouse", 20.0, 10);
+        Order order = new Order();
+        order.setId(100L);
+        OrderProduct line = new OrderProduct();
+        line.setId(new OrderProductId(100L, 10L));
+        line.setOrder(order);
+        line.setProduct(laptop);
+        line.setQuantity(2);
+        order.getOrderProducts().add(line);
+        Mockito.when(orderRepository.findByUserIdAndId(1L, 100L)).thenReturn(order);
+        Mockito.when(productRepository.findAllByNameIn(Mockito.anyCollection())).thenReturn(List.of(mouse));
+        Mockito.when(stockStore.moveStock(Mockito.anyMap(), Mockito.anyMap())).thenReturn(List.of());
+        Mockito.when(orderRepository.save(order)).thenReturn(order);
+
+        Order result = orderService.updateOrder(1L, 100L, orderOf("Mouse", 4));
+
+        Assertions.assertEquals(80.0, result.getTotalPrice());
+        Mockito.verify(stockStore).moveStock(Map.of(mouse, 4), Map.of(laptop, 2));
+        Mockito.verify(cacheInvalidator).invalidate(EntityRef.product(10L));
+        Mockito.verify(cacheInvalidator).invalidate(EntityRef.product(11L));
+        Mockito.verify(orderProductRepository).deleteAll(Mockito.argThat(
+                (Iterable<OrderProduct> lines) -> List.of(line).equals(List.copyOf((Collection<OrderProduct>) lines))));
+        Mockito.verify(orderProductRepository, Mockito.never()).deleteAllByOrderId(Mockito.anyLong());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void updateOrder_appliesOnlyNetDeltas() {
+        Product laptop = product(10L, "Laptop", 1000.0, 5);
+        Product mouse = product(11L, "Mouse", 20.0, 10);
+        Product cable = product(12L, "Cable", 5.0, 50);
+        Order order = new Order();
+        order.setId(100L);
+        OrderProduct laptopLine = line(order, laptop, 1);
+        OrderProduct mouseLine = line(order, mouse, 5);
+        order.getOrderProducts().addAll(List.of(laptopLine, mouseLine));
+        Mockito.when(orderRepository.findByUserIdAndId(1L, 100L)).thenReturn(order);
+        Mockito.when(productRepository.findAllByNameIn(Mockito.anyCollection()))
+                .thenReturn(List.of(laptop, mouse, cable));
+        Mockito.when(stockStore.moveStock(Mockito.anyMap(), Mockito.anyMap())).thenReturn(List.of());
+        Mockito.when(orderRepository.save(order)).thenReturn(order);
+
+        Order result = orderService.updateOrder(1L, 100L, orderOf("Laptop", 1, "Mouse", 2, "Cable", 3));
+
+        Assertions.assertEquals(1055.0, result.getTotalPrice());
+        Assertions.assertEquals(3, result.getOrderProducts().size());
+        Assertions.assertEquals(2, mouseLine.getQuantity());
+        Mockito.verify(stockStore).moveStock(Map.of(cable, 3), Map.of(mouse, 3));
+        ArgumentCaptor<Iterable<OrderProduct>> saved = ArgumentCaptor.forClass(Iterable.class);
+        Mockito.verify(orderProductRepository).saveAll(saved.capture());
+        List<OrderProduct> savedLines = new ArrayList<>();
+        saved.getValue().forEach(savedLines::add);
+        Assertions.assertEquals(2, savedLines.size());
+        Assertions.assertTrue(savedLines.contains(mouseLine));
+        Assertions.assertFalse(savedLines.contains(laptopLine));
+        Mockito.verify(orderProductRepository, Mockito.never()).deleteAll(Mockito.anyIterable());
+        Mockito.verify(cacheInvalidator, Mockito.never()).invalidate(EntityRef.product(10L));
+        Mockito.verify(cacheInvalidator).invalidate(EntityRef.product(11L));
+        Mockito.verify(cacheInvalidator).invalidate(EntityRef.product(12L));
+    }
+
+    @Test
+    void updateOrder_unchangedItemsTouchNoStock() {
+        Product laptop = product(10L, "Laptop", 1000.0, 5);
+        Order order = new Order();
+        order.setId(100L);
+        order.getOrderProducts().add(line(order, laptop, 2));
+        Mockito.when(orderRepository.findByUserIdAndId(1L, 100L)).thenReturn(order);
+        Mockito.when(productRepository.findAllByNameIn(Mockito.anyCollection())).thenReturn(List.of(laptop));
+        Mockito.when(orderRepository.save(order)).thenReturn(order);
+
+        Order result = orderService.updateOrder(1L, 100L, orderOf("Laptop", 2));
+
+        Assertions.assertEquals(2000.0, result.getTotalPrice());
+        Mockito.verify(stockStore, Mockito.never()).moveStock(Mockito.anyMap(), Mockito.anyMap());
+        Mockito.verify(orderProductRepository, Mockito.never()).saveAll(Mockito.anyIterable());
+        Mockito.verify(orderProductRepository, Mockito.never()).deleteAll(Mockito.anyIterable());
+        Mockito.verify(cacheInvalidator, Mockito.never()).invalidate(Mockito.any());
+    }
+
+    @Test
+    void createOrders_takesStockForWholeBatchInOneUpdate() {
+        User first = user(1L);
+        User second = user(2L);
+        Product laptop = product(10L, "Laptop", 1000.0, 5);
+        Product mouse = product(11L, "Mouse", 20.0, 10);
+        Mockito.when(userRepository.findAllById(Mockito.anyIterable())).thenReturn(List.of(first, second));
+        Mockito.when(productRepository.findAllByNameIn(Mockito.anyCollection())).thenReturn(List.of(laptop, mouse));
+        Mockito.when(stockStore.moveStock(Mockito.anyMap(), Mockito.anyMap())).thenReturn(List.of());
+        stubSaveAllOrders();
+
+        List<OrderService.OrderResult> results = orderService.createOrders(List.of(
+                new OrderService.OrderRequest(1L, orderOf("Laptop", 1, "Mouse", 1)),
+                new OrderService.OrderRequest(2L, orderOf("Mouse", 2))));
+
+        Assertions.assertEquals(1020.0, results.get(0).order().getTotalPrice());
+        Assertions.assertEquals(40.0, results.get(1).order().getTotalPrice());
+        Mockito.verify(stockStore, Mockito.times(1)).moveStock(Map.of(laptop, 1, mouse, 3), Map.of());
+        Mockito.verify(orderRepository, Mockito.times(1)).saveAll(Mockito.anyIterable());
+        Mockito.verify(orderProductRepository, Mockito.times(1)).saveAll(Mockito.anyIterable());
+        Mockito.verify(cacheInvalidator).broadcast(EntityRef.order(100L));
+        Mockito.verify(cacheInvalidator).broadcast(EntityRef.order(101L));
+    }
+
+    @Test
+    void createOrders_rejectsOnlyOrdersThatCannotBePlaced() {
+        Product laptop = product(10L, "Laptop", 1000.0, 1);
+        Mockito.when(userRepository.findAllById(Mockito.anyIterable())).thenReturn(List.of(user(1L)));
+        Mockito.when(productRepository.findAllByNameIn(Mockito.anyCollection())).thenReturn(List.of(laptop));
+        Mockito.when(stockStore.moveStock(Map.of(laptop, 2), Map.of())).thenReturn(List.of(laptop));
+        Mockito.when(stockStore.moveStock(Map.of(laptop, 1), Map.of()))
+                .thenReturn(List.of())
+                .thenReturn(List.of(laptop));
+        stubSaveAllOrders();
+
+        List<OrderService.OrderResult> results = orderService.createOrders(List.of(
+                new OrderService.OrderRequest(1L, orderOf("Laptop", 1)),
+                new OrderService.OrderRequest(1L, orderOf("Laptop", 1)),
+                new OrderService.OrderRequest(2L, orderOf("Laptop", 1)),
+                new OrderService.OrderRequest(1L, orderOf("Phone", 1))));
+
+        Assertions.assertNull(results.get(0).error());
+        Assertions.assertEquals(100L, results.get(0).order().getId());
+        Assertions.assertTrue(results.get(1).error().getMessage().contains("Not enough stock"));
+        Assertions.assertEquals("User not found", results.get(2).error().getMessage());
+        Assertions.assertTrue(results.get(3).error().getMessage().contains("Phone"));
+        Mockito.verify(cacheInvalidator, Mockito.times(1)).broadcast(Mockito.any());
+    }
+
+    @Test
+    void createOrders_placesOrdersOneByOneWhenBatchFails() {
+        Product laptop = product(10L, "Laptop", 1000.0, 5);
+        Mockito.when(userRepository.findAllById(Mockito.anyIterable())).thenThrow(new IllegalStateException("boom"));
+        Mockito.when(userRepository.findById(1L)).thenReturn(Optional.of(user(1L)));
+        Mockito.when(userRepository.findById(2L)).thenReturn(Optional.empty());
+        Mockito.when(productRepository.findAllByNameIn(Mockito.anyCollection())).thenReturn(List.of(laptop));
+        Mockito.when(stockStore.moveStock(Mockito.anyMap(), Mockito.anyMap())).thenReturn(List.of());
+        Mockito.when(orderRepository.save(Mockito.any(Order.class))).thenAnswer(invocation -> {
+            Order order = invocation.getArgument(0);
+            order.setId(100L);
+            return order;
+        });
+
+        List<OrderService.OrderResult> results = orderService.createOrders(List.of(
+                new OrderService.OrderRequest(1L, orderOf("Laptop", 1)),
+                new OrderService.OrderRequest(2L, orderOf("Laptop", 1))));
+
+        Assertions.assertEquals(100L, results.get(0).order().getId());
+        Assertions.assertInstanceOf(ResourceNotFoundException.class, results.get(1).error());
+        Mockito.verify(orderRepository, Mockito.never()).saveAll(Mockito.anyIterable());
+    }
+
+    private void stubSaveAllOrders() {
+        Mockito.when(orderRepository.saveAll(Mockito.anyIterable())).thenAnswer(invocation -> {
+            List<Order> orders = new ArrayList<>();
+            invocation.<Iterable<Order>>getArgument(0).forEach(orders::add);
+            for (int i = 0; i < orders.size(); i++) {
+                orders.get(i).setId(100L + i);
+            }
+            return orders;
+        });
+    }
+
+    private static User user(long id) {
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+
+    private static OrderProduct line(Order order, Product product, int quantity) {
+        OrderProduct line = new OrderProduct();
+        line.setId(new OrderProductId(order.getId(), product.getId()));
+        line.setOrder(order);
+        line.setProduct(product);
+        line.setQuantity(quantity);
+        return line;
+    }
+}
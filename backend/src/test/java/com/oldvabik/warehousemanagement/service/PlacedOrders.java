@@ -0,0 +1,34 @@
+package com.oldvabik.warehousemanagement.service;
+
+import com.oldvabik.warehousemanagement.exception.ResourceNotFoundException;
+import com.oldvabik.warehousemanagement.model.Order;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.mockito.stubbing.Answer;
+
+// Stands in for OrderService.createOrders: places each order with id userId * 100, rejecting the given users.
+final class PlacedOrders {
+
+    private PlacedOrders() {
+    }
+
+    static Answer<List<OrderService.OrderResult>> rejectingUsers(long... missingUsers) {
+        return invocation -> place(invocation.getArgument(0), missingUsers);
+    }
+
+    static List<OrderService.OrderResult> place(List<OrderService.OrderRequest> requests, long... missingUsers) {
+        List<OrderService.OrderResult> results = new ArrayList<>();
+        for (OrderService.OrderRequest request : requests) {
+            if (Arrays.stream(missingUsers).anyMatch(id -> id == request.userId())) {
+                results.add(new OrderService.OrderResult(null, null, new ResourceNotFoundException("User not found")));
+            } else {
+                Order order = new Order();
+                order.setId(request.userId() * 100);
+                results.add(new OrderService.OrderResult(order, null, null));
+            }
+        }
+        return results;
+    }
+
+}
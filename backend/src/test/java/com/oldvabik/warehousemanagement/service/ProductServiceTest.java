@@ -1,12 +1,20 @@
 package com.oldvabik.warehousemanagement.service;
 
+import com.oldvabik.warehousemanagement.cache.CacheInvalidator;
+import com.oldvabik.warehousemanagement.cache.CollectionCache;
 import com.oldvabik.warehousemanagement.cache.ProductCache;
+import com.oldvabik.warehousemanagement.cache.EntityRef;
+import com.oldvabik.warehousemanagement.config.CacheProperties;
 import com.oldvabik.warehousemanagement.dto.ProductDto;
 import com.oldvabik.warehousemanagement.exception.AlreadyExistsException;
 import com.oldvabik.warehousemanagement.exception.ResourceNotFoundException;
+import com.oldvabik.warehousemanagement.inventory.DatabaseStockStore;
+import com.oldvabik.warehousemanagement.inventory.StockStore;
+import com.oldvabik.warehousemanagement.mapper.CategoryMapper;
 import com.oldvabik.warehousemanagement.mapper.ProductMapper;
 import com.oldvabik.warehousemanagement.model.Category;
 import com.oldvabik.warehousemanagement.model.Product;
+import com.oldvabik.warehousemanagement.model.ProductSnapshot;
 import com.oldvabik.warehousemanagement.repository.CategoryRepository;
 import com.oldvabik.warehousemanagement.repository.ProductRepository;
 import org.junit.jupiter.api.Assertions;
@@ -15,11 +23,14 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.LongFunction;
 
 @ExtendWith(MockitoExtension.class)
 class ProductServiceTest {
@@ -28,12 +39,18 @@ class ProductServiceTest {
     private ProductService productService;
     @Mock
     private ProductRepository productRepository;
-    @Mock
-    private ProductMapper productMapper;
+    @Spy
+    private ProductMapper productMapper = new ProductMapper(new CategoryMapper());
     @Mock
     private ProductCache productCache;
+    @Spy
+    private CollectionCache collectionCache = new CollectionCache(new CacheProperties());
+    @Mock
+    private CacheInvalidator cacheInvalidator;
     @Mock
     private CategoryRepository categoryRepository;
+    @Spy
+    private StockStore stockStore = new DatabaseStockStore(Mockito.mock(ProductRepository.class));
 
     @Test
     void createProduct_success() {
@@ -59,7 +76,6 @@ class ProductServiceTest {
         Mockito.when(productMapper.toEntity(productDto, category)).thenReturn(product);
         Mockito.when(productRepository.findByName(product.getName())).thenReturn(Optional.empty());
         Mockito.when(productRepository.save(product)).thenReturn(savedProduct);
-        Mockito.doNothing().when(productCache).put(savedProduct.getId(), savedProduct);
 
         Product result = productService.createProduct(productDto);
 
@@ -70,7 +86,8 @@ class ProductServiceTest {
         Mockito.verify(productMapper).toEntity(productDto, category);
         Mockito.verify(productRepository).findByName(product.getName());
         Mockito.verify(productRepository).save(product);
-        Mockito.verify(productCache).put(savedProduct.getId(), savedProduct);
+        Mockito.verify(productCache).put(savedProduct.getId(), snapshotOf(savedProduct));
+        Mockito.verify(cacheInvalidator).broadcast(EntityRef.product(1L));
     }
 
     @Test
@@ -139,10 +156,9 @@ class ProductServiceTest {
         productSecond.setPrice(25.0);
         productSecond.setCategory(categoryBooks);
 
-        Mockito.when(productRepository.existsByName(productDtoFirst.getName())).thenReturn(false);
-        Mockito.when(productRepository.existsByName(productDtoSecond.getName())).thenReturn(false);
-        Mockito.when(categoryRepository.findByName(productDtoFirst.getCategoryName())).thenReturn(Optional.of(categoryElectronics));
-        Mockito.when(categoryRepository.findByName(productDtoSecond.getCategoryName())).thenReturn(Optional.of(categoryBooks));
+        Mockito.when(productRepository.findAllByNameIn(Mockito.anyCollection())).thenReturn(Collections.emptyList());
+        Mockito.when(categoryRepository.findAllByNameIn(Mockito.anyCollection()))
+                .thenReturn(Arrays.asList(categoryElectronics, categoryBooks));
         Mockito.when(productMapper.toEntity(productDtoFirst, categoryElectronics)).thenReturn(productFirst);
         Mockito.when(productMapper.toEntity(productDtoSecond, categoryBooks)).thenReturn(productSecond);
 
@@ -166,10 +182,10 @@ class ProductServiceTest {
 
         Assertions.assertNotNull(result);
         Assertions.assertEquals(2, result.size());
-        Mockito.verify(productRepository).existsByName("Laptop");
-        Mockito.verify(productRepository).existsByName("Book");
-        Mockito.verify(categoryRepository).findByName("Electronics");
-        Mockito.verify(categoryRepository).findByName("Books");
+        Mockito.verify(productRepository).findAllByNameIn(Arrays.asList("Laptop", "Book"));
+        Mockito.verify(categoryRepository).findAllByNameIn(Set.of("Electronics", "Books"));
+        Mockito.verify(productRepository, Mockito.never()).existsByName(Mockito.anyString());
+        Mockito.verify(categoryRepository, Mockito.never()).findByName(Mockito.anyString());
         Mockito.verify(productMapper).toEntity(productDtoFirst, categoryElectronics);
         Mockito.verify(productMapper).toEntity(productDtoSecond, categoryBooks);
         Mockito.verify(productRepository).saveAll(Arrays.asList(productFirst, productSecond));
@@ -198,7 +214,9 @@ class ProductServiceTest {
 
         List<ProductDto> productsDto = Collections.singletonList(productDto);
 
-        Mockito.when(productRepository.existsByName("Laptop")).thenReturn(true);
+        Product existing = new Product();
+        existing.setName("Laptop");
+        Mockito.when(productRepository.findAllByNameIn(Mockito.anyCollection())).thenReturn(List.of(existing));
 
         Assertions.assertThrows(AlreadyExistsException.class, () -> productService.createProducts(productsDto));
     }
@@ -211,8 +229,8 @@ class ProductServiceTest {
 
         List<ProductDto> productsDto = Collections.singletonList(productDto);
 
-        Mockito.when(productRepository.existsByName("Laptop")).thenReturn(false);
-        Mockito.when(categoryRepository.findByName("NonExistingCategory")).thenReturn(Optional.empty());
+        Mockito.when(productRepository.findAllByNameIn(Mockito.anyCollection())).thenReturn(Collections.emptyList());
+        Mockito.when(categoryRepository.findAllByNameIn(Mockito.anyCollection())).thenReturn(Collections.emptyList());
 
         Assertions.assertThrows(ResourceNotFoundException.class, () -> productService.createProducts(productsDto));
     }
@@ -235,17 +253,12 @@ class ProductServiceTest {
         List<Product> products = Arrays.asList(productFirst, productSecond);
 
         Mockito.when(productRepository.findAll()).thenReturn(products);
-        Mockito.when(productCache.get(1L)).thenReturn(null);
-        Mockito.when(productCache.get(2L)).thenReturn(productSecond);
-        Mockito.doNothing().when(productCache).put(1L, productFirst);
 
-        List<Product> result = productService.getProducts();
+        List<ProductSnapshot> result = productService.getProducts();
 
-        Assertions.assertEquals(2, result.size());
+        Assertions.assertEquals(List.of(snapshotOf(productFirst), snapshotOf(productSecond)), result);
+        Assertions.assertSame(result, productService.getProducts());
         Mockito.verify(productRepository).findAll();
-        Mockito.verify(productCache).get(1L);
-        Mockito.verify(productCache).get(2L);
-        Mockito.verify(productCache).put(1L, productFirst);
     }
 
     @Test
@@ -257,16 +270,14 @@ class ProductServiceTest {
 
     @Test
     void getProduct_fromCache() {
-        Product product = new Product();
-        product.setId(1L);
-        product.setName("Laptop");
+        ProductSnapshot product = new ProductSnapshot(1L, "Laptop", null, null, null);
 
-        Mockito.when(productCache.get(1L)).thenReturn(product);
+        Mockito.when(productCache.getOrLoad(Mockito.eq(1L), Mockito.any())).thenReturn(product);
 
-        Product result = productService.getProduct(1L);
+        ProductSnapshot result = productService.getProduct(1L);
 
         Assertions.assertEquals(product, result);
-        Mockito.verify(productCache).get(1L);
+        Mockito.verify(productCache).getOrLoad(Mockito.eq(1L), Mockito.any());
         Mockito.verify(productRepository, Mockito.never()).findById(Mockito.anyLong());
     }
 
@@ -276,21 +287,19 @@ class ProductServiceTest {
         product.setId(1L);
         product.setName("Laptop");
 
-        Mockito.when(productCache.get(1L)).thenReturn(null);
+        loadThroughCache(1L);
         Mockito.when(productRepository.findById(1L)).thenReturn(Optional.of(product));
-        Mockito.doNothing().when(productCache).put(1L, product);
 
-        Product result = productService.getProduct(1L);
+        ProductSnapshot result = productService.getProduct(1L);
 
-        Assertions.assertEquals(product, result);
-        Mockito.verify(productCache).get(1L);
+        Assertions.assertEquals(snapshotOf(product), result);
+        Mockito.verify(productCache).getOrLoad(Mockito.eq(1L), Mockito.any());
         Mockito.verify(productRepository).findById(1L);
-        Mockito.verify(productCache).put(1L, product);
     }
 
     @Test
     void getProduct_throwsException() {
-        Mockito.when(productCache.get(1L)).thenReturn(null);
+        loadThroughCache(1L);
         Mockito.when(productRepository.findById(1L)).thenReturn(Optional.empty());
 
         Assertions.assertThrows(ResourceNotFoundException.class, () -> productService.getProduct(1L));
@@ -324,7 +333,6 @@ class ProductServiceTest {
         Mockito.when(productRepository.findByName(updateDto.getName())).thenReturn(Optional.empty());
         Mockito.when(categoryRepository.findByName(updateDto.getCategoryName())).thenReturn(Optional.of(newCategory));
         Mockito.when(productRepository.save(existingProduct)).thenReturn(updatedProduct);
-        Mockito.doNothing().when(productCache).put(1L, updatedProduct);
 
         Product result = productService.updateProduct(1L, updateDto);
 
@@ -335,7 +343,8 @@ class ProductServiceTest {
         Mockito.verify(productRepository).findByName(updateDto.getName());
         Mockito.verify(categoryRepository).findByName(updateDto.getCategoryName());
         Mockito.verify(productRepository).save(existingProduct);
-        Mockito.verify(productCache).put(1L, updatedProduct);
+        Mockito.verify(productCache).put(1L, snapshotOf(updatedProduct));
+        Mockito.verify(cacheInvalidator).invalidateDependents(EntityRef.product(1L));
     }
 
     @Test
@@ -399,6 +408,7 @@ class ProductServiceTest {
 
         Mockito.verify(productRepository).findById(1L);
         Mockito.verify(productCache).remove(1L);
+        Mockito.verify(cacheInvalidator).invalidateDependents(EntityRef.product(1L));
         Mockito.verify(productRepository).delete(product);
     }
 
@@ -409,4 +419,13 @@ class ProductServiceTest {
         Assertions.assertThrows(ResourceNotFoundException.class, () -> productService.deleteProduct(1L));
     }
 
+    private void loadThroughCache(Long id) {
+        Mockito.when(productCache.getOrLoad(Mockito.eq(id), Mockito.any()))
+                .thenAnswer(invocation -> invocation.<LongFunction<ProductSnapshot>>getArgument(1).apply(id));
+    }
+
+    private static ProductSnapshot snapshotOf(Product product) {
+        return new ProductMapper(new CategoryMapper()).toSnapshot(product);
+    }
+
 }
@@ -0,0 +1,76 @@
+package com.oldvabik.warehousemanagement.service;
+
+import com.oldvabik.warehousemanagement.config.OrderProperties;
+import com.oldvabik.warehousemanagement.exception.ResourceNotFoundException;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.orm.jpa.JpaSystemException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class TransactionRetryTest {
+
+    private PlatformTransactionManager transactionManager;
+    private TransactionRetry transactionRetry;
+
+    @BeforeEach
+    void setUp() {
+        OrderProperties properties = new OrderProperties();
+        properties.getRetry().setMaxAttempts(3);
+        properties.getRetry().setInitialBackoff(Duration.ofMillis(1));
+        properties.getRetry().setMaxBackoff(Duration.ofMillis(2));
+        transactionManager = Mockito.mock(PlatformTransactionManager.class);
+        transactionRetry = new TransactionRetry(transactionManager, properties);
+    }
+
+    @Test
+    void execute_retriesDeadlockVictimInNewTransaction() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = transactionRetry.execute(() -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new CannotAcquireLockException("deadlock detected");
+            }
+            return "ok";
+        });
+
+        Assertions.assertEquals("ok", result);
+        Assertions.assertEquals(3, attempts.get());
+        Mockito.verify(transactionManager, Mockito.times(3)).getTransaction(Mockito.any());
+        Mockito.verify(transactionManager, Mockito.times(2)).rollback(Mockito.any());
+    }
+
+    @Test
+    void execute_givesUpAfterMaxAttempts() {
+        AtomicInteger attempts = new AtomicInteger();
+        JpaSystemException serializationFailure = new JpaSystemException(
+                new RuntimeException(new SQLException("could not serialize access", "40001")));
+
+        JpaSystemException thrown = Assertions.assertThrows(JpaSystemException.class,
+                () -> transactionRetry.execute(() -> {
+                    attempts.incrementAndGet();
+                    throw serializationFailure;
+                }));
+
+        Assertions.assertSame(serializationFailure, thrown);
+        Assertions.assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void execute_doesNotRetryBusinessErrors() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        Assertions.assertThrows(ResourceNotFoundException.class, () -> transactionRetry.execute(() -> {
+            attempts.incrementAndGet();
+            throw new ResourceNotFoundException("Not enough stock for product: Laptop");
+        }));
+
+        Assertions.assertEquals(1, attempts.get());
+    }
+
+}
@@ -1,11 +1,16 @@
 package com.oldvabik.warehousemanagement.service;
 
+import com.oldvabik.warehousemanagement.cache.CacheInvalidator;
+import com.oldvabik.warehousemanagement.cache.CollectionCache;
 import com.oldvabik.warehousemanagement.cache.UserCache;
+import com.oldvabik.warehousemanagement.cache.EntityRef;
+import com.oldvabik.warehousemanagement.config.CacheProperties;
 import com.oldvabik.warehousemanagement.dto.UserDto;
 import com.oldvabik.warehousemanagement.exception.AlreadyExistsException;
 import com.oldvabik.warehousemanagement.exception.ResourceNotFoundException;
 import com.oldvabik.warehousemanagement.mapper.UserMapper;
 import com.oldvabik.warehousemanagement.model.User;
+import com.oldvabik.warehousemanagement.model.UserSnapshot;
 import com.oldvabik.warehousemanagement.repository.UserRepository;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -13,11 +18,13 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.LongFunction;
 
 @ExtendWith(MockitoExtension.class)
 class UserServiceTest {
@@ -26,10 +33,14 @@ class UserServiceTest {
     private UserService userService;
     @Mock
     private UserRepository userRepository;
-    @Mock
+    @Spy
     private UserMapper userMapper;
     @Mock
     private UserCache userCache;
+    @Spy
+    private CollectionCache collectionCache = new CollectionCache(new CacheProperties());
+    @Mock
+    private CacheInvalidator cacheInvalidator;
 
     @Test
     void createUser_shouldReturnUser_whenEmailDoesNotExist() {
@@ -55,7 +66,6 @@ class UserServiceTest {
         Mockito.when(userRepository.existsByEmail(userDto.getEmail())).thenReturn(false);
         Mockito.when(userMapper.toEntity(userDto)).thenReturn(user);
         Mockito.when(userRepository.save(user)).thenReturn(savedUser);
-        Mockito.doNothing().when(userCache).put(savedUser.getId(), savedUser);
 
         User result = userService.createUser(userDto);
 
@@ -63,7 +73,8 @@ class UserServiceTest {
         Assertions.assertEquals(savedUser.getId(), result.getId());
         Mockito.verify(userRepository, Mockito.times(1)).existsByEmail(userDto.getEmail());
         Mockito.verify(userRepository, Mockito.times(1)).save(user);
-        Mockito.verify(userCache, Mockito.times(1)).put(savedUser.getId(), savedUser);
+        Mockito.verify(userCache, Mockito.times(1)).put(savedUser.getId(), snapshotOf(savedUser));
+        Mockito.verify(cacheInvalidator).broadcast(EntityRef.user(1L));
     }
 
     @Test
@@ -83,7 +94,7 @@ class UserServiceTest {
     }
 
     @Test
-    void getUsers_shouldReturnUsersAndCacheMissingUsers() {
+    void getUsers_shouldReturnUsersAndServeRepeatCallsFromCache() {
         User userOne = new User();
         userOne.setId(1L);
         userOne.setFirstName("Alice");
@@ -101,13 +112,11 @@ class UserServiceTest {
         List<User> userList = Arrays.asList(userOne, userTwo);
         Mockito.when(userRepository.findAll()).thenReturn(userList);
 
-        Mockito.when(userCache.get(userOne.getId())).thenReturn(userOne);
-        Mockito.when(userCache.get(userTwo.getId())).thenReturn(null);
+        List<UserSnapshot> result = userService.getUsers();
 
-        List<User> result = userService.getUsers();
-
-        Assertions.assertEquals(2, result.size());
-        Mockito.verify(userCache, Mockito.times(1)).put(userTwo.getId(), userTwo);
+        Assertions.assertEquals(List.of(snapshotOf(userOne), snapshotOf(userTwo)), result);
+        Assertions.assertSame(result, userService.getUsers());
+        Mockito.verify(userRepository, Mockito.times(1)).findAll();
     }
 
     @Test
@@ -120,19 +129,14 @@ class UserServiceTest {
 
     @Test
     void getUserById_shouldReturnUserFromCache_whenUserExistsInCache() {
-        User cachedUser = new User();
-        cachedUser.setId(1L);
-        cachedUser.setFirstName("Alice");
-        cachedUser.setLastName("Smith");
-        cachedUser.setEmail("alice@example.com");
-        cachedUser.setAge(25);
+        UserSnapshot cachedUser = new UserSnapshot(1L, "Alice", "Smith", "alice@example.com", 25);
 
-        Mockito.when(userCache.get(cachedUser.getId())).thenReturn(cachedUser);
+        Mockito.when(userCache.getOrLoad(Mockito.eq(cachedUser.id()), Mockito.any())).thenReturn(cachedUser);
 
-        User result = userService.getUserById(cachedUser.getId());
+        UserSnapshot result = userService.getUserById(cachedUser.id());
 
         Assertions.assertEquals(cachedUser, result);
-        Mockito.verify(userCache, Mockito.times(1)).get(cachedUser.getId());
+        Mockito.verify(userCache, Mockito.times(1)).getOrLoad(Mockito.eq(cachedUser.id()), Mockito.any());
         Mockito.verify(userRepository, Mockito.never()).findById(Mockito.any());
     }
 
@@ -145,21 +149,20 @@ class UserServiceTest {
         userFromRepo.setEmail("alice@example.com");
         userFromRepo.setAge(25);
 
-        Mockito.when(userCache.get(userFromRepo.getId())).thenReturn(null);
+        loadThroughCache(userFromRepo.getId());
         Mockito.when(userRepository.findById(userFromRepo.getId())).thenReturn(Optional.of(userFromRepo));
 
-        User result = userService.getUserById(userFromRepo.getId());
+        UserSnapshot result = userService.getUserById(userFromRepo.getId());
 
-        Assertions.assertEquals(userFromRepo, result);
-        Mockito.verify(userCache, Mockito.times(1)).get(userFromRepo.getId());
+        Assertions.assertEquals(snapshotOf(userFromRepo), result);
+        Mockito.verify(userCache, Mockito.times(1)).getOrLoad(Mockito.eq(userFromRepo.getId()), Mockito.any());
         Mockito.verify(userRepository, Mockito.times(1)).findById(userFromRepo.getId());
-        Mockito.verify(userCache, Mockito.times(1)).put(userFromRepo.getId(), userFromRepo);
     }
 
     @Test
     void getUserById_shouldThrowResourceNotFoundException_whenUserNotFound() {
         Long userId = 1L;
-        Mockito.when(userCache.get(userId)).thenReturn(null);
+        loadThroughCache(userId);
         Mockito.when(userRepository.findById(userId)).thenReturn(Optional.empty());
 
         ResourceNotFoundException exception = Assertions.assertThrows(ResourceNotFoundException.class, () -> userService.getUserById(userId));
@@ -201,7 +204,8 @@ class UserServiceTest {
         Mockito.verify(userRepository, Mockito.times(1)).findById(1L);
         Mockito.verify(userRepository, Mockito.times(1)).findByEmail(updateDto.getEmail());
         Mockito.verify(userRepository, Mockito.times(1)).save(existingUser);
-        Mockito.verify(userCache, Mockito.times(1)).put(1L, updatedUser);
+        Mockito.verify(userCache, Mockito.times(1)).put(1L, snapshotOf(updatedUser));
+        Mockito.verify(cacheInvalidator).invalidateDependents(EntityRef.user(1L));
     }
 
     @Test
@@ -264,6 +268,7 @@ class UserServiceTest {
         Mockito.verify(userRepository, Mockito.times(1)).findById(existingUser.getId());
         Mockito.verify(userRepository, Mockito.times(1)).delete(existingUser);
         Mockito.verify(userCache, Mockito.times(1)).remove(existingUser.getId());
+        Mockito.verify(cacheInvalidator).invalidateDependents(EntityRef.user(existingUser.getId()));
     }
 
     @Test
@@ -273,4 +278,13 @@ class UserServiceTest {
         Assertions.assertThrows(ResourceNotFoundException.class, () -> userService.deleteUserById(1L));
     }
 
+    private void loadThroughCache(Long id) {
+        Mockito.when(userCache.getOrLoad(Mockito.eq(id), Mockito.any()))
+                .thenAnswer(invocation -> invocation.<LongFunction<UserSnapshot>>getArgument(1).apply(id));
+    }
+
+    private static UserSnapshot snapshotOf(User user) {
+        return new UserSnapshot(user.getId(), user.getFirstName(), user.getLastName(), user.getEmail(), user.getAge());
+    }
+
 }